@@ -0,0 +1,33 @@
+package com.example.paymentselection.benchmark;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Conjuntos de IDs usados pelos benchmarks: IDs espaçados (1 a cada 3), como numa seleção feita à mão
+ * sobre uma busca filtrada, e o lote de um PATCH com metade dos IDs novos e metade já selecionados.
+ */
+final class BenchmarkData {
+
+  /**
+   * IDs alterados por PATCH.
+   */
+  static final int PATCH_SIZE = 100;
+
+  private BenchmarkData() {
+  }
+
+  static List<Long> ids(int size) {
+    return LongStream.range(0, size).map(i -> i * 3 + 1).boxed().toList();
+  }
+
+  static List<Long> patch(int size) {
+    int half = Math.min(PATCH_SIZE / 2, size);
+    return LongStream.concat(
+            LongStream.range(0, half).map(i -> i * 3 + 1),
+            LongStream.range(0, PATCH_SIZE - half).map(i -> size * 3L + i * 3 + 2))
+        .boxed()
+        .toList();
+  }
+
+}
@@ -0,0 +1,68 @@
+package com.example.paymentselection.benchmark;
+
+import com.example.paymentselection.dto.UpdateSelectionRequest;
+import com.example.paymentselection.util.BitmapUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Leitura do corpo de {@code PATCH /selections/{id}} até o bitmap usado pelo serviço: IDs como array JSON
+ * ({@code includeIds}) x bitmap Roaring em Base64 ({@code includeBitmap}). O tamanho de cada corpo é
+ * impresso no setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdListEncodingBenchmark {
+
+  @Param({"1000", "200000"})
+  private int size;
+
+  private ObjectMapper objectMapper;
+
+  private byte[] jsonArrayBody;
+
+  private byte[] bitmapBody;
+
+  @Setup
+  public void setUp() throws IOException {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    List<Long> ids = BenchmarkData.ids(size);
+    jsonArrayBody = objectMapper.writeValueAsBytes(Map.of("includeIds", ids));
+    bitmapBody = objectMapper.writeValueAsBytes(Map.of("includeBitmap",
+        Base64.getEncoder().encodeToString(BitmapUtils.toBytes(BitmapUtils.of(ids)))));
+    System.out.printf("%n%,d IDs: array JSON %,d bytes, bitmap %,d bytes%n", size, jsonArrayBody.length,
+        bitmapBody.length);
+  }
+
+  @Benchmark
+  public Roaring64NavigableMap jsonArray() throws IOException {
+    return BitmapUtils.of(objectMapper.readValue(jsonArrayBody, UpdateSelectionRequest.class).includeIds());
+  }
+
+  @Benchmark
+  public Roaring64NavigableMap bitmap() throws IOException {
+    return objectMapper.readValue(bitmapBody, UpdateSelectionRequest.class).includeBitmap();
+  }
+
+}
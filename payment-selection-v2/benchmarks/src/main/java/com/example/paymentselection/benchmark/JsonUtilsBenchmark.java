@@ -0,0 +1,57 @@
+package com.example.paymentselection.benchmark;
+
+import com.example.paymentselection.util.JsonUtils;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operações sobre o array JSON de IDs (formato legado de {@code include_ids}/{@code exclude_ids}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonUtilsBenchmark {
+
+  @Param({"10", "1000", "100000", "1000000"})
+  private int size;
+
+  private String json;
+
+  private List<Long> patch;
+
+  @Setup
+  public void setUp() {
+    json = JsonUtils.toJson(BenchmarkData.ids(size));
+    patch = BenchmarkData.patch(size);
+  }
+
+  @Benchmark
+  public List<Long> fromJsonArray() {
+    return JsonUtils.fromJsonArray(json);
+  }
+
+  @Benchmark
+  public String mergeJsonArray() {
+    return JsonUtils.mergeJsonArray(json, patch);
+  }
+
+  @Benchmark
+  public String removeFromJsonArray() {
+    return JsonUtils.removeFromJsonArray(json, patch);
+  }
+
+}
@@ -0,0 +1,65 @@
+package com.example.paymentselection.benchmark;
+
+import com.example.paymentselection.dto.PaymentSummary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Serialização da resposta de {@code GET /api/payments/search} ({@code Page<PaymentSummary>}), com o
+ * {@link ObjectMapper} configurado como na aplicação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentPageSerializationBenchmark {
+
+  @Param({"20", "100", "1000"})
+  private int pageSize;
+
+  private ObjectMapper objectMapper;
+
+  private Page<PaymentSummary> page;
+
+  @Setup
+  public void setUp() {
+    objectMapper = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+    Instant now = Instant.now();
+    List<PaymentSummary> payments = LongStream.rangeClosed(1, pageSize).mapToObj(id -> new PaymentSummary(id,
+        "A_PAGAR", LocalDate.of(2024, 1, 1).plusDays(id % 365), BigDecimal.valueOf(id % 1000, 2).add(BigDecimal.TEN),
+        "Pagamento " + id, now, now)).toList();
+    page = new PageImpl<>(payments, PageRequest.of(0, pageSize), 1_000_000);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(page);
+  }
+
+}
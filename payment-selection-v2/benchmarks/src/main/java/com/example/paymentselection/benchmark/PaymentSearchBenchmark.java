@@ -0,0 +1,141 @@
+package com.example.paymentselection.benchmark;
+
+import com.example.paymentselection.PaymentSelectionApplication;
+import com.example.paymentselection.dto.PaymentSummary;
+import com.example.paymentselection.entity.Payment;
+import com.example.paymentselection.repository.PaymentRepository;
+import com.example.paymentselection.service.PaymentService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Página de {@code GET /api/payments/search} de ponta a ponta (consulta + serialização) sobre H2 em
+ * memória. {@code entityPage} reproduz o caminho anterior: entidades gerenciadas e serialização dentro da
+ * sessão (open-in-view), com a conexão presa até o fim; {@code projectionPage} é o caminho atual, com a
+ * projeção {@link PaymentSummary} numa transação somente leitura e a serialização depois de devolver a
+ * conexão. {@code projectionQuery} isola a parte que segura a conexão.
+ *
+ * <p>No fim de cada execução, imprime o tempo médio de uso da conexão ({@code hikaricp.connections.usage}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentSearchBenchmark {
+
+  @Param({"500"})
+  private int pageSize;
+
+  @Param({"20000"})
+  private int payments;
+
+  private ConfigurableApplicationContext app;
+
+  private PaymentService paymentService;
+
+  private PaymentRepository paymentRepository;
+
+  private TransactionTemplate transactionTemplate;
+
+  private ObjectMapper objectMapper;
+
+  private Pageable pageable;
+
+  @Setup
+  public void setUp() {
+    SpringApplication application = new SpringApplication(PaymentSelectionApplication.class);
+    application.setBannerMode(Banner.Mode.OFF);
+    app = application.run(
+        "--server.port=0",
+        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=PostgreSQL;INIT=CREATE DOMAIN IF NOT EXISTS jsonb AS JSON",
+        "--spring.datasource.driver-class-name=org.h2.Driver",
+        "--spring.datasource.username=sa",
+        "--spring.datasource.password=",
+        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "--spring.flyway.enabled=false",
+        "--spring.jpa.hibernate.ddl-auto=create-drop",
+        "--selection.reaper.enabled=false",
+        "--spring.jpa.show-sql=false",
+        "--logging.level.root=WARN",
+        "--logging.level.com.example.paymentselection=WARN",
+        "--logging.level.org.springframework.web=WARN",
+        "--logging.level.org.hibernate.SQL=WARN");
+    app.getBean(JdbcTemplate.class).update("""
+        INSERT INTO payment (status, vencimento, valor, descricao, created_at, updated_at)
+        SELECT 'A_PAGAR', DATEADD('DAY', MOD(X, 1095), DATE '2024-01-01'), MOD(X, 1000) + 0.99,
+               CONCAT('Pagamento ', X), CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+          FROM SYSTEM_RANGE(1, ?)""", payments);
+
+    paymentService = app.getBean(PaymentService.class);
+    paymentRepository = app.getBean(PaymentRepository.class);
+    transactionTemplate = new TransactionTemplate(app.getBean(PlatformTransactionManager.class));
+    objectMapper = app.getBean(ObjectMapper.class);
+    pageable = PageRequest.of(0, pageSize);
+  }
+
+  @TearDown
+  public void tearDown() {
+    Timer usage = app.getBean(MeterRegistry.class).find("hikaricp.connections.usage").timer();
+    if (usage != null) {
+      System.out.printf(Locale.ROOT, "%nhikaricp.connections.usage: %d usos, média %.3f ms, máximo %.3f ms%n",
+          usage.count(), usage.mean(TimeUnit.MILLISECONDS), usage.max(TimeUnit.MILLISECONDS));
+    }
+    app.close();
+  }
+
+  @Benchmark
+  public byte[] entityPage() {
+    return transactionTemplate.execute(status -> {
+      Page<Payment> page = paymentRepository.findAll(pageable);
+      return serialize(page);
+    });
+  }
+
+  @Benchmark
+  public byte[] projectionPage() {
+    return serialize(paymentService.searchPayments(null, null, pageable));
+  }
+
+  @Benchmark
+  public Page<PaymentSummary> projectionQuery() {
+    return paymentService.searchPayments(null, null, pageable);
+  }
+
+  private byte[] serialize(Page<?> page) {
+    try {
+      return objectMapper.writeValueAsBytes(page);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+}
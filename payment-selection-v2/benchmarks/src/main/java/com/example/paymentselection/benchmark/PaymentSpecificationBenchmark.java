@@ -0,0 +1,42 @@
+package com.example.paymentselection.benchmark;
+
+import com.example.paymentselection.entity.Payment;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Normalização do filtro e montagem da {@link Specification} feitas a cada busca de pagamentos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentSpecificationBenchmark {
+
+  private final Map<String, Object> filterJson = Map.of("status", " A_PAGAR ", "vencimentoAte", "2024-12-31");
+
+  @Benchmark
+  public Specification<Payment> fromSearchParameters() {
+    return PaymentFilter.of("A_PAGAR", LocalDate.of(2024, 12, 31)).toSpecification();
+  }
+
+  @Benchmark
+  public Specification<Payment> fromSelectionFilter() {
+    return PaymentFilter.of(filterJson).toSpecification();
+  }
+
+}
@@ -0,0 +1,88 @@
+package com.example.paymentselection.benchmark;
+
+import com.example.paymentselection.enums.DeltaOperation;
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.service.SelectionState;
+import com.example.paymentselection.util.BitmapUtils;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+/**
+ * Parte em CPU do {@code SelectionService.update}: decodificar o estado gravado, aplicar um PATCH
+ * (contagem incremental + alteração dos conjuntos) e recodificar o bitmap, como na compactação de deltas.
+ * As consultas ao banco ({@code matchingIds}) ficam de fora; todos os IDs atendem ao filtro.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelectionUpdateBenchmark {
+
+  @Param({"10", "1000", "100000", "1000000"})
+  private int size;
+
+  @Param({"NONE", "ALL"})
+  private Mode mode;
+
+  private byte[] stored;
+
+  private byte[] empty;
+
+  private List<Long> patch;
+
+  private Roaring64NavigableMap matching;
+
+  private SelectionState state;
+
+  @Setup
+  public void setUp() {
+    List<Long> ids = BenchmarkData.ids(size);
+    stored = BitmapUtils.toBytes(BitmapUtils.of(ids));
+    empty = BitmapUtils.toBytes(new Roaring64NavigableMap());
+    patch = BenchmarkData.patch(size);
+    matching = BitmapUtils.of(ids);
+    matching.or(BitmapUtils.of(patch));
+    state = decode();
+  }
+
+  @Benchmark
+  public SelectionState decode() {
+    // Em modo NONE o conjunto grande é o de incluídos; em ALL, o de excluídos
+    return mode == Mode.NONE
+        ? new SelectionState(mode, BitmapUtils.fromBytes(stored), BitmapUtils.fromBytes(empty))
+        : new SelectionState(mode, BitmapUtils.fromBytes(empty), BitmapUtils.fromBytes(stored));
+  }
+
+  @Benchmark
+  public long update() {
+    SelectionState next = state.copy();
+    Roaring64NavigableMap ids = BitmapUtils.of(patch);
+    long change = next.countChange(DeltaOperation.SELECT, ids, matching);
+    next.apply(DeltaOperation.SELECT, ids);
+    return change + next.getIncluded().getLongCardinality() + next.getExcluded().getLongCardinality();
+  }
+
+  @Benchmark
+  public byte[] decodeUpdateEncode() {
+    SelectionState next = decode();
+    Roaring64NavigableMap ids = BitmapUtils.of(patch);
+    next.countChange(DeltaOperation.DESELECT, ids, matching);
+    next.apply(DeltaOperation.DESELECT, ids);
+    return BitmapUtils.toBytes(mode == Mode.NONE
+        ? next.getIncluded() : next.getExcluded());
+  }
+
+}
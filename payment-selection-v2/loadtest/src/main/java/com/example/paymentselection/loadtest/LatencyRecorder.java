@@ -0,0 +1,88 @@
+package com.example.paymentselection.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Latências por endpoint. Guarda todas as amostras (em microssegundos) para percentis exatos; as
+ * registradas durante o aquecimento são descartadas.
+ */
+class LatencyRecorder {
+
+  private final Map<String, Samples> endpoints = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean recording = new AtomicBoolean();
+
+  void start() {
+    recording.set(true);
+  }
+
+  void stop() {
+    recording.set(false);
+  }
+
+  void record(String endpoint, long nanos, boolean success) {
+    if (recording.get()) {
+      endpoints.computeIfAbsent(endpoint, e -> new Samples()).add(nanos / 1000, success);
+    }
+  }
+
+  Map<String, Samples> endpoints() {
+    return endpoints;
+  }
+
+  /**
+   * Amostras de um endpoint; as threads virtuais dos operadores disputam o lock só para anexar.
+   */
+  static class Samples {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long[] micros = new long[1024];
+
+    private int count;
+
+    private int errors;
+
+    void add(long value, boolean success) {
+      lock.lock();
+      try {
+        if (count == micros.length) {
+          micros = Arrays.copyOf(micros, count * 2);
+        }
+        micros[count++] = value;
+        if (!success) {
+          errors++;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int count() {
+      return count;
+    }
+
+    int errors() {
+      return errors;
+    }
+
+    /**
+     * Percentis pedidos (0-100), em milissegundos.
+     */
+    double[] percentiles(double... ps) {
+      long[] sorted = Arrays.copyOf(micros, count);
+      Arrays.sort(sorted);
+      double[] result = new double[ps.length];
+      for (int i = 0; i < ps.length; i++) {
+        int index = (int) Math.ceil(ps[i] / 100 * sorted.length) - 1;
+        result[i] = sorted.length == 0 ? 0 : sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+      }
+      return result;
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+package com.example.paymentselection.loadtest;
+
+import com.example.paymentselection.PaymentSelectionApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Teste de carga ponta a ponta do fluxo de seleção, via HTTP.
+ *
+ * <p>Sem {@code --target}, sobe a aplicação no mesmo processo com H2 em memória (modo PostgreSQL) e
+ * gera {@code --payments} pagamentos; com {@code --target=http://host:porta}, usa uma aplicação já
+ * em execução (e os pagamentos que houver no banco dela). Cada operador é uma thread virtual.
+ */
+public class LoadTest {
+
+  private static final double[] PERCENTILES = {50, 95, 99};
+
+  public static void main(String[] args) throws Exception {
+    LoadTestConfig config = LoadTestConfig.parse(args);
+
+    ConfigurableApplicationContext app = null;
+    String baseUrl = config.target();
+    if (config.embedded()) {
+      app = startEmbedded(config);
+      baseUrl = "http://localhost:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+    }
+
+    try {
+      LatencyRecorder recorder = run(config, baseUrl);
+      report(config, recorder);
+    } finally {
+      if (app != null) {
+        app.close();
+      }
+    }
+  }
+
+  private static ConfigurableApplicationContext startEmbedded(LoadTestConfig config) {
+    SpringApplication application = new SpringApplication(PaymentSelectionApplication.class);
+    application.setBannerMode(Banner.Mode.OFF);
+    // Como argumentos, para ter precedência sobre o application.yml; outras propriedades da aplicação
+    // (ex.: -Dspring.profiles.active=virtual-threads) podem ser passadas com -D
+    ConfigurableApplicationContext app = application.run(
+        "--server.port=0",
+        "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=PostgreSQL;INIT=CREATE DOMAIN IF NOT EXISTS jsonb AS JSON",
+        "--spring.datasource.driver-class-name=org.h2.Driver",
+        "--spring.datasource.username=sa",
+        "--spring.datasource.password=",
+        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "--spring.flyway.enabled=false",
+        "--spring.jpa.hibernate.ddl-auto=create-drop",
+        "--selection.reaper.enabled=false",
+        "--spring.jpa.show-sql=false",
+        "--logging.level.root=WARN",
+        "--logging.level.com.example.paymentselection=WARN",
+        "--logging.level.org.springframework.web=WARN",
+        "--logging.level.org.hibernate.SQL=WARN");
+
+    log("Gerando %,d pagamentos...", config.payments());
+    app.getBean(JdbcTemplate.class).update("""
+        INSERT INTO payment (status, vencimento, valor, descricao, created_at, updated_at)
+        SELECT 'A_PAGAR', DATEADD('DAY', MOD(X, 1095), DATE '2024-01-01'), MOD(X, 1000) + 0.99,
+               CONCAT('Pagamento ', X), CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+          FROM SYSTEM_RANGE(1, ?)""", config.payments());
+    return app;
+  }
+
+  private static LatencyRecorder run(LoadTestConfig config, String baseUrl) throws InterruptedException {
+    HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    ObjectMapper objectMapper = new ObjectMapper();
+    LatencyRecorder recorder = new LatencyRecorder();
+
+    Instant warmupEnd = Instant.now().plus(config.warmup());
+    Instant end = warmupEnd.plus(config.duration());
+    log("%d operadores contra %s: aquecimento de %s, medição de %s", config.users(), baseUrl,
+        config.warmup(), config.duration());
+
+    try (ExecutorService operators = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < config.users(); i++) {
+        operators.submit(() -> {
+          OperatorSession session = new OperatorSession(client, objectMapper, recorder, config, baseUrl);
+          while (Instant.now().isBefore(end)) {
+            session.run();
+          }
+          return null;
+        });
+      }
+
+      Thread.sleep(config.warmup());
+      recorder.start();
+      Thread.sleep(config.duration());
+      recorder.stop();
+      // Sessões em andamento terminam sem serem medidas
+      operators.shutdown();
+      operators.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    return recorder;
+  }
+
+  private static void report(LoadTestConfig config, LatencyRecorder recorder) throws IOException {
+    double seconds = config.duration().toMillis() / 1000.0;
+    List<String> rows = new ArrayList<>();
+    rows.add("endpoint,requests,errors,req_s,p50_ms,p95_ms,p99_ms");
+    long total = 0;
+
+    System.out.printf(Locale.ROOT, "%n%-30s %9s %7s %9s %9s %9s %9s%n",
+        "endpoint", "req", "erros", "req/s", "p50 ms", "p95 ms", "p99 ms");
+    for (Map.Entry<String, LatencyRecorder.Samples> entry : new TreeMap<>(recorder.endpoints()).entrySet()) {
+      LatencyRecorder.Samples samples = entry.getValue();
+      double[] p = samples.percentiles(PERCENTILES);
+      total += samples.count();
+      System.out.printf(Locale.ROOT, "%-30s %9d %7d %9.1f %9.1f %9.1f %9.1f%n", entry.getKey(), samples.count(),
+          samples.errors(), samples.count() / seconds, p[0], p[1], p[2]);
+      rows.add(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.2f,%.2f,%.2f", entry.getKey(), samples.count(),
+          samples.errors(), samples.count() / seconds, p[0], p[1], p[2]));
+    }
+    System.out.printf(Locale.ROOT, "%-30s %9d %7s %9.1f%n", "total", total, "", total / seconds);
+
+    if (config.report() != null) {
+      Files.write(Path.of(config.report()), rows);
+      log("Relatório gravado em %s", config.report());
+    }
+  }
+
+  private static void log(String format, Object... args) {
+    System.out.printf(Locale.ROOT, "[%s] %s%n", Instant.now(), String.format(Locale.ROOT, format, args));
+  }
+
+}
@@ -0,0 +1,88 @@
+package com.example.paymentselection.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parâmetros do teste de carga, lidos de argumentos {@code --nome=valor}.
+ *
+ * @param target        URL de uma aplicação já em execução; vazio sobe a aplicação embutida com H2
+ * @param users         operadores simultâneos
+ * @param duration      duração da medição (depois do aquecimento)
+ * @param warmup        duração do aquecimento, não contabilizado no relatório
+ * @param payments      pagamentos gerados no banco embutido
+ * @param thinkTime     pausa média entre ações de um operador (exponencial, como um usuário real)
+ * @param searchPages   páginas de busca consultadas por sessão de seleção
+ * @param pageSize      tamanho da página de busca
+ * @param patches       PATCHes por sessão de seleção
+ * @param idsPerPatch   IDs marcados/desmarcados por PATCH
+ * @param concurrentPatches PATCHes simultâneos na mesma seleção a cada passo (várias abas, cliques duplos),
+ *                      que dividem entre si os IDs do passo
+ * @param patchBatch    passos de PATCH acumulados num único PATCH em lote ({@code /selections/{id}/operations});
+ *                      1 envia cada passo num PATCH simples
+ * @param applyRatio    fração das sessões que terminam em apply (as demais são abandonadas)
+ * @param allModeRatio  fração das sessões criadas em modo ALL (com filtro restrito por vencimento)
+ * @param report        arquivo CSV opcional com o resultado por endpoint
+ */
+record LoadTestConfig(
+    String target,
+    int users,
+    Duration duration,
+    Duration warmup,
+    int payments,
+    Duration thinkTime,
+    int searchPages,
+    int pageSize,
+    int patches,
+    int idsPerPatch,
+    int concurrentPatches,
+    int patchBatch,
+    double applyRatio,
+    double allModeRatio,
+    String report
+) {
+
+  private static final Set<String> KNOWN = Set.of("users", "duration", "warmup", "payments", "think-time",
+      "search-pages", "page-size", "patches", "ids-per-patch", "concurrent-patches",
+      "patch-batch", "apply-ratio", "all-mode-ratio");
+
+  static LoadTestConfig parse(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Argumento inválido: " + arg + " (use --nome=valor)");
+      }
+      options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+    }
+
+    LoadTestConfig config = new LoadTestConfig(
+        options.remove("target"),
+        Integer.parseInt(options.getOrDefault("users", "50")),
+        Duration.parse(options.getOrDefault("duration", "PT2M")),
+        Duration.parse(options.getOrDefault("warmup", "PT20S")),
+        Integer.parseInt(options.getOrDefault("payments", "200000")),
+        Duration.parse(options.getOrDefault("think-time", "PT0.2S")),
+        Integer.parseInt(options.getOrDefault("search-pages", "3")),
+        Integer.parseInt(options.getOrDefault("page-size", "50")),
+        Integer.parseInt(options.getOrDefault("patches", "20")),
+        Integer.parseInt(options.getOrDefault("ids-per-patch", "25")),
+        Integer.parseInt(options.getOrDefault("concurrent-patches", "1")),
+        Integer.parseInt(options.getOrDefault("patch-batch", "1")),
+        Double.parseDouble(options.getOrDefault("apply-ratio", "0.2")),
+        Double.parseDouble(options.getOrDefault("all-mode-ratio", "0.1")),
+        options.remove("report"));
+
+    options.keySet().removeAll(KNOWN);
+    if (!options.isEmpty()) {
+      throw new IllegalArgumentException("Opções desconhecidas: " + options.keySet());
+    }
+    return config;
+  }
+
+  boolean embedded() {
+    return target == null || target.isBlank();
+  }
+
+}
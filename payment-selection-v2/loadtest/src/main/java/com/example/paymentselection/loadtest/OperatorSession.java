@@ -0,0 +1,197 @@
+package com.example.paymentselection.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Um operador repetindo o fluxo real: busca paginada (e contagem) → cria a seleção → vários PATCHes
+ * marcando/desmarcando IDs vistos na busca → apply (numa fração das sessões) e acompanhamento do job.
+ */
+class OperatorSession {
+
+  private static final LocalDate FIRST_DUE_DATE = LocalDate.of(2024, 1, 1);
+
+  private static final int MAX_JOB_POLLS = 30;
+
+  private final HttpClient client;
+
+  private final ObjectMapper objectMapper;
+
+  private final LatencyRecorder recorder;
+
+  private final LoadTestConfig config;
+
+  private final String baseUrl;
+
+  OperatorSession(HttpClient client, ObjectMapper objectMapper, LatencyRecorder recorder, LoadTestConfig config,
+      String baseUrl) {
+    this.client = client;
+    this.objectMapper = objectMapper;
+    this.recorder = recorder;
+    this.config = config;
+    this.baseUrl = baseUrl;
+  }
+
+  /**
+   * Executa uma sessão completa; uma falha encerra a sessão (já registrada como erro do endpoint).
+   */
+  void run() throws InterruptedException {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    try {
+      List<Long> seen = new ArrayList<>();
+      int lastPage = Math.max(1, config.payments() / config.pageSize() / 20);
+      for (int i = 0; i < config.searchPages(); i++) {
+        JsonNode page = call("GET /api/payments/search", get("/api/payments/search?status=A_PAGAR&page="
+            + random.nextInt(lastPage) + "&size=" + config.pageSize()));
+        page.path("content").forEach(payment -> seen.add(payment.path("id").asLong()));
+        think();
+      }
+      call("GET /api/payments/count", get("/api/payments/count?status=A_PAGAR"));
+      think();
+
+      boolean allMode = random.nextDouble() < config.allModeRatio();
+      Map<String, Object> filter = allMode
+          ? Map.of("status", "A_PAGAR", "vencimentoAte", FIRST_DUE_DATE.plusDays(random.nextInt(30)).toString())
+          : Map.of("status", "A_PAGAR");
+      JsonNode selection = call("POST /selections",
+          send("POST", "/selections", Map.of("filter", filter, "mode", allMode ? "ALL" : "NONE")));
+      String id = selection.path("selectionId").asText();
+      think();
+
+      List<Long> marked = new ArrayList<>();
+      List<Map<String, Object>> pending = new ArrayList<>();
+      for (int i = 0; i < config.patches(); i++) {
+        Collections.shuffle(seen, random);
+        List<Long> ids = List.copyOf(seen.subList(0, Math.min(config.idsPerPatch(), seen.size())));
+        // Um em cada quatro PATCHes desfaz parte do que foi marcado
+        boolean undo = i % 4 == 3 && !marked.isEmpty();
+        List<Long> toggled = undo ? List.copyOf(marked.subList(0, Math.min(ids.size(), marked.size()))) : ids;
+        // Em modo NONE o operador marca (include) e em ALL desmarca (exclude); desfazer inverte
+        boolean include = allMode == undo;
+        if (config.patchBatch() > 1) {
+          // O operador acumula as marcações e as envia de uma vez, a cada patch-batch passos
+          pending.add(Map.of("type", include ? "INCLUDE" : "EXCLUDE", "ids", toggled));
+          if (pending.size() == config.patchBatch() || i == config.patches() - 1) {
+            call("PATCH /selections/{id}/operations", send("PATCH", "/selections/" + id + "/operations",
+                Map.of("operations", pending)));
+            pending = new ArrayList<>();
+          }
+        } else {
+          patch(id, include, toggled);
+        }
+        if (!undo) {
+          marked.addAll(ids);
+        }
+        think();
+      }
+
+      if (random.nextDouble() < config.applyRatio()) {
+        JsonNode job = call("POST /selections/{id}/apply", send("POST", "/selections/" + id + "/apply",
+            Map.of("action", random.nextBoolean() ? "PAY" : "CANCEL")));
+        awaitJob(job.path("jobId").asText());
+      }
+    } catch (IOException | IllegalStateException e) {
+      // Sessão abandonada; o erro já foi contabilizado no endpoint
+    }
+  }
+
+  /**
+   * Envia os IDs do passo em {@code concurrent-patches} PATCHes simultâneos, como várias abas da mesma seleção.
+   */
+  private void patch(String id, boolean include, List<Long> ids) throws IOException, InterruptedException {
+    int parts = Math.min(config.concurrentPatches(), ids.size());
+    if (parts <= 1) {
+      call("PATCH /selections/{id}", patchRequest(id, include, ids));
+      return;
+    }
+
+    List<Future<JsonNode>> calls = new ArrayList<>();
+    try (ExecutorService tabs = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < parts; i++) {
+        HttpRequest request = patchRequest(id, include,
+            ids.subList(i * ids.size() / parts, (i + 1) * ids.size() / parts));
+        calls.add(tabs.submit(() -> call("PATCH /selections/{id}", request)));
+      }
+    }
+    for (Future<JsonNode> call : calls) {
+      try {
+        call.get();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException io) {
+          throw io;
+        }
+        throw (RuntimeException) e.getCause();
+      }
+    }
+  }
+
+  private HttpRequest patchRequest(String id, boolean include, List<Long> ids) throws IOException {
+    return send("PATCH", "/selections/" + id,
+        Map.of("includeIds", include ? ids : List.of(), "excludeIds", include ? List.of() : ids));
+  }
+
+  private void awaitJob(String jobId) throws IOException, InterruptedException {
+    for (int i = 0; i < MAX_JOB_POLLS; i++) {
+      think();
+      String status = call("GET /apply-jobs/{id}", get("/apply-jobs/" + jobId)).path("status").asText();
+      if (status.equals("COMPLETED") || status.equals("FAILED")) {
+        return;
+      }
+    }
+  }
+
+  private JsonNode call(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    HttpResponse<byte[]> response;
+    try {
+      response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    } catch (IOException e) {
+      recorder.record(endpoint, System.nanoTime() - start, false);
+      throw e;
+    }
+    boolean success = response.statusCode() / 100 == 2;
+    recorder.record(endpoint, System.nanoTime() - start, success);
+    if (!success) {
+      throw new IllegalStateException(endpoint + " respondeu " + response.statusCode());
+    }
+    return objectMapper.readTree(response.body());
+  }
+
+  private HttpRequest get(String path) {
+    return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+  }
+
+  private HttpRequest send(String method, String path, Object body) throws IOException {
+    return HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .header("Content-Type", "application/json")
+        .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+        .build();
+  }
+
+  /**
+   * Pausa do operador entre ações, com distribuição exponencial em torno de {@code think-time}.
+   */
+  private void think() throws InterruptedException {
+    long mean = config.thinkTime().toMillis();
+    if (mean > 0) {
+      Thread.sleep(Duration.ofMillis((long) (-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()))));
+    }
+  }
+
+}
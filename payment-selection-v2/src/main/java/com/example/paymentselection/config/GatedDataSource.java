@@ -0,0 +1,118 @@
+package com.example.paymentselection.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * DataSource que limita as conexões em uso com um semáforo justo na frente do pool.
+ *
+ * <p>Com threads virtuais, milhares de requisições podem pedir conexão ao mesmo tempo; sem o semáforo,
+ * todas disputam o handoff do Hikari e as excedentes falham após o {@code connectionTimeout}. Aqui elas
+ * aguardam na fila do semáforo (barata para threads virtuais), em ordem de chegada, até {@code timeout}.
+ * A permissão é devolvida quando a conexão é fechada (devolvida ao pool).
+ */
+public class GatedDataSource extends DelegatingDataSource {
+
+  private final Semaphore permits;
+
+  private final Duration timeout;
+
+  public GatedDataSource(DataSource target, int permits, Duration timeout) {
+    super(target);
+    this.permits = new Semaphore(permits, true);
+    this.timeout = timeout;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    acquire();
+    try {
+      return gate(super.getConnection());
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    acquire();
+    try {
+      return gate(super.getConnection(username, password));
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Requisições aguardando uma conexão.
+   */
+  public int waiting() {
+    return permits.getQueueLength();
+  }
+
+  /**
+   * Conexões que ainda podem ser obtidas sem espera.
+   */
+  public int available() {
+    return permits.availablePermits();
+  }
+
+  /**
+   * Espera máxima por uma permissão.
+   */
+  public Duration timeout() {
+    return timeout;
+  }
+
+  private void acquire() throws SQLException {
+    try {
+      if (!permits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        throw new SQLTransientConnectionException(
+            "Nenhuma conexão disponível após " + timeout.toMillis() + " ms (" + waiting() + " aguardando)");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLTransientConnectionException("Interrompido aguardando conexão", e);
+    }
+  }
+
+  /**
+   * Envolve a conexão para devolver a permissão (uma única vez) no {@code close()}.
+   */
+  private Connection gate(Connection target) {
+    AtomicBoolean released = new AtomicBoolean();
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+        (proxy, method, args) -> {
+          if (method.getName().equals("close")) {
+            try {
+              target.close();
+            } finally {
+              if (released.compareAndSet(false, true)) {
+                permits.release();
+              }
+            }
+            return null;
+          }
+          if (method.getName().equals("unwrap") && ((Class<?>) args[0]).isInstance(target)) {
+            return target;
+          }
+          try {
+            return method.invoke(target, args);
+          } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+          }
+        });
+  }
+
+}
@@ -0,0 +1,118 @@
+package com.example.paymentselection.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+/**
+ * Garantia de ler as próprias escritas com réplicas de leitura ({@link ReplicaRoutingDataSource}).
+ *
+ * <p>Depois que um usuário cria, altera ou aplica uma seleção (e quando um job dele termina), as leituras
+ * das requisições desse usuário vão ao primário por {@code replicas.read-your-writes-window}: tempo em que
+ * qualquer réplica em uso (atraso de até {@code replicas.max-lag}) já recebeu a escrita. A decisão é
+ * tomada por requisição ({@link #requirePrimary}) e propagada às tarefas assíncronas disparadas por ela.
+ */
+@Component
+public class ReadYourWrites {
+
+  private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+  /**
+   * Usuários acompanhados antes de descartar as escritas que já saíram da janela.
+   */
+  private static final int MAX_USERS = 10_000;
+
+  private final Map<UUID, Instant> writes = new ConcurrentHashMap<>();
+
+  @Value("${replicas.urls:}")
+  private String replicaUrls = "";
+
+  @Value("${replicas.read-your-writes-window:${replicas.max-lag:PT5S}}")
+  private Duration window = Duration.ofSeconds(5);
+
+  /**
+   * Registra uma escrita do usuário; dentro de uma transação, só vale após o commit.
+   */
+  public void markWritten(UUID userId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      record(userId);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        record(userId);
+      }
+    });
+  }
+
+  /**
+   * Se as leituras do usuário ainda precisam ir ao primário.
+   */
+  public boolean recentlyWrote(UUID userId) {
+    Instant writtenAt = writes.get(userId);
+    if (writtenAt == null) {
+      return false;
+    }
+    if (!settled(writtenAt)) {
+      return true;
+    }
+    writes.remove(userId, writtenAt);
+    return false;
+  }
+
+  /**
+   * Se uma escrita confirmada em {@code writtenAt} já chegou a todas as réplicas em uso (sempre verdadeiro
+   * sem réplicas).
+   */
+  public boolean settled(Instant writtenAt) {
+    return !StringUtils.hasText(replicaUrls) || writtenAt == null
+        || !writtenAt.plus(window).isAfter(Instant.now());
+  }
+
+  private void record(UUID userId) {
+    if (writes.size() >= MAX_USERS) {
+      writes.values().removeIf(this::settled);
+    }
+    writes.put(userId, Instant.now());
+  }
+
+  /**
+   * Se a thread atual deve ler do primário.
+   */
+  public static boolean primaryRequired() {
+    return Boolean.TRUE.equals(PRIMARY.get());
+  }
+
+  static void requirePrimary(boolean required) {
+    if (required) {
+      PRIMARY.set(Boolean.TRUE);
+    } else {
+      PRIMARY.remove();
+    }
+  }
+
+  /**
+   * Executa {@code task} com a decisão da thread atual (para tarefas assíncronas).
+   */
+  static Runnable propagate(Runnable task) {
+    boolean required = primaryRequired();
+    return () -> {
+      boolean previous = primaryRequired();
+      requirePrimary(required);
+      try {
+        task.run();
+      } finally {
+        requirePrimary(previous);
+      }
+    };
+  }
+
+}
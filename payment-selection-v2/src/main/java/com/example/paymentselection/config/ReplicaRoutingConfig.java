@@ -0,0 +1,179 @@
+package com.example.paymentselection.config;
+
+import com.example.paymentselection.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Réplicas de leitura ({@code replicas.urls}, perfil {@code replicas}): o DataSource principal passa a
+ * ser um {@link ReplicaRoutingDataSource}, com um pool Hikari por réplica, e as requisições de usuários que
+ * acabaram de escrever leem do primário ({@link ReadYourWrites}).
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "replicas.urls")
+public class ReplicaRoutingConfig {
+
+  /**
+   * Consulta padrão do atraso (segundos), para PostgreSQL: zero fora de recuperação (instância
+   * independente) ou com todo o WAL recebido já aplicado.
+   */
+  static final String POSTGRES_LAG_QUERY = """
+      SELECT CASE
+               WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+               ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+             END""";
+
+  @Autowired
+  private DataSource dataSource;
+
+  /**
+   * Envolve o DataSource principal (depois do semáforo do modo de threads virtuais, se houver).
+   */
+  @Bean
+  static BeanPostProcessor replicaRoutingPostProcessor(Environment environment) {
+    return new RoutingPostProcessor(environment);
+  }
+
+  /**
+   * Mede o atraso das réplicas; até a primeira medição, todas as leituras vão ao primário.
+   */
+  @Scheduled(fixedDelayString = "${replicas.check-interval:PT2S}")
+  public void checkReplicas() {
+    routing(dataSource).checkReplicas();
+  }
+
+  /**
+   * Métricas {@code jdbc.routing.reads}, {@code jdbc.replica.lag} e dos pools das réplicas.
+   */
+  @Bean
+  MeterBinder replicaRoutingMetrics(DataSource dataSource) {
+    return registry -> routing(dataSource).bindTo(registry);
+  }
+
+  /**
+   * Decide, no início de cada requisição, se o usuário precisa ler do primário.
+   */
+  @Bean
+  WebMvcConfigurer readYourWritesInterceptor(ReadYourWrites readYourWrites, UserService userService) {
+    return new WebMvcConfigurer() {
+      @Override
+      public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+          @Override
+          public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            ReadYourWrites.requirePrimary(readYourWrites.recentlyWrote(userService.getCurrentUserId()));
+            return true;
+          }
+
+          @Override
+          public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+              Object handler) {
+            ReadYourWrites.requirePrimary(false);
+          }
+
+          @Override
+          public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+              Exception ex) {
+            ReadYourWrites.requirePrimary(false);
+          }
+        });
+      }
+    };
+  }
+
+  /**
+   * Leva a decisão da requisição às tarefas assíncronas (exportação em streaming, {@code @Async}).
+   */
+  @Bean
+  TaskDecorator readYourWritesTaskDecorator() {
+    return ReadYourWrites::propagate;
+  }
+
+  private static ReplicaRoutingDataSource routing(DataSource dataSource) {
+    try {
+      return dataSource.unwrap(ReplicaRoutingDataSource.class);
+    } catch (SQLException e) {
+      throw new IllegalStateException("DataSource sem roteamento para réplicas", e);
+    }
+  }
+
+  private record RoutingPostProcessor(Environment environment) implements BeanPostProcessor, Ordered {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+      if (!"dataSource".equals(beanName) || !(bean instanceof DataSource primary)) {
+        return bean;
+      }
+
+      List<String> urls = Arrays.stream(environment.getProperty("replicas.urls", String[].class, new String[0]))
+          .filter(StringUtils::hasText)
+          .map(String::trim)
+          .toList();
+      List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+      for (int i = 0; i < urls.size(); i++) {
+        String name = "replica-" + i;
+        replicas.add(new ReplicaRoutingDataSource.Replica(name, replica(name, urls.get(i))));
+      }
+
+      Duration maxLag = environment.getProperty("replicas.max-lag", Duration.class, Duration.ofSeconds(5));
+      String lagQuery = environment.getProperty("replicas.lag-query", POSTGRES_LAG_QUERY);
+      log.info("Leituras somente leitura roteadas para {} réplica(s) com atraso de até {}", replicas.size(), maxLag);
+      return new ReplicaRoutingDataSource(primary, replicas, maxLag, lagQuery);
+    }
+
+    /**
+     * Pool da réplica, com as credenciais e o tamanho do primário por padrão. O pool só conecta no primeiro
+     * uso e falha rápido ({@code replicas.connection-timeout}), para a leitura cair logo no primário.
+     */
+    private DataSource replica(String name, String url) {
+      HikariDataSource replica = new HikariDataSource();
+      replica.setPoolName(name);
+      replica.setJdbcUrl(url);
+      replica.setUsername(environment.getProperty("replicas.username",
+          environment.getProperty("spring.datasource.username")));
+      replica.setPassword(environment.getProperty("replicas.password",
+          environment.getProperty("spring.datasource.password")));
+      String driver = environment.getProperty("spring.datasource.driver-class-name");
+      if (StringUtils.hasText(driver)) {
+        replica.setDriverClassName(driver);
+      }
+      replica.setMaximumPoolSize(environment.getProperty("replicas.pool-size", Integer.class,
+          environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10)));
+      replica.setConnectionTimeout(environment.getProperty("replicas.connection-timeout", Duration.class,
+          Duration.ofSeconds(2)).toMillis());
+      replica.setReadOnly(true);
+
+      boolean virtualThreads = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+      return virtualThreads ? VirtualThreadConfig.gate(replica, environment) : replica;
+    }
+
+    @Override
+    public int getOrder() {
+      return Ordered.LOWEST_PRECEDENCE;
+    }
+  }
+
+}
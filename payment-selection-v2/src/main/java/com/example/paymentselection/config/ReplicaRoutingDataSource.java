@@ -0,0 +1,202 @@
+package com.example.paymentselection.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * DataSource que manda as transações somente leitura ({@code @Transactional(readOnly = true)}) para
+ * réplicas de leitura; escritas vão sempre ao primário.
+ *
+ * <p>A conexão física só é obtida no primeiro comando, quando já se sabe se a transação é somente leitura.
+ * As leituras vão, em rodízio, às réplicas disponíveis com atraso de até {@code maxLag} (medido a cada
+ * {@link #checkReplicas}) e caem no primário quando nenhuma réplica serve, quando a réplica recusa a
+ * conexão (ela fica de fora até a próxima verificação) ou quando a requisição precisa ler as próprias
+ * escritas ({@link ReadYourWrites}). Uma falha depois que a conexão foi obtida não é refeita no primário.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+  private static final String PRIMARY = "primary";
+
+  /**
+   * Réplica de leitura com o último atraso medido ({@code null} enquanto indisponível ou não verificada).
+   */
+  public static final class Replica {
+
+    private final String name;
+
+    private final DataSource dataSource;
+
+    private volatile Duration lag;
+
+    public Replica(String name, DataSource dataSource) {
+      this.name = name;
+      this.dataSource = dataSource;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public Duration lag() {
+      return lag;
+    }
+
+  }
+
+  private final DataSource primary;
+
+  private final List<Replica> replicas;
+
+  private final Duration maxLag;
+
+  private final String lagQuery;
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  private volatile MeterRegistry meterRegistry;
+
+  public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, Duration maxLag, String lagQuery) {
+    super(primary);
+    this.primary = primary;
+    this.replicas = List.copyOf(replicas);
+    this.maxLag = maxLag;
+    this.lagQuery = lagQuery;
+    setReadOnlyDataSource(new ReadOnlyTarget());
+  }
+
+  public List<Replica> replicas() {
+    return replicas;
+  }
+
+  /**
+   * Mede o atraso de cada réplica com {@code lagQuery} (segundos); réplicas que falham ficam indisponíveis.
+   */
+  public void checkReplicas() {
+    for (Replica replica : replicas) {
+      Duration previous = replica.lag;
+      try (Connection connection = replica.dataSource.getConnection();
+           Statement statement = connection.createStatement()) {
+        statement.setQueryTimeout(5);
+        try (ResultSet rs = statement.executeQuery(lagQuery)) {
+          rs.next();
+          replica.lag = Duration.ofMillis(Math.round(rs.getDouble(1) * 1000));
+        }
+        if (previous == null) {
+          log.info("Réplica {} disponível (atraso de {})", replica.name, replica.lag);
+        } else if (previous.compareTo(maxLag) <= 0 && replica.lag.compareTo(maxLag) > 0) {
+          log.warn("Réplica {} com atraso de {} (máximo {}); leituras vão ao primário", replica.name,
+              replica.lag, maxLag);
+        } else if (previous.compareTo(maxLag) > 0 && replica.lag.compareTo(maxLag) <= 0) {
+          log.info("Réplica {} alcançou o primário (atraso de {})", replica.name, replica.lag);
+        }
+      } catch (SQLException e) {
+        replica.lag = null;
+        if (previous != null) {
+          log.warn("Réplica {} indisponível; leituras vão ao primário: {}", replica.name, e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Métricas: {@code jdbc.routing.reads} (leituras por destino e motivo), {@code jdbc.replica.lag}
+   * (segundos; NaN quando indisponível) e as do pool Hikari de cada réplica.
+   */
+  public void bindTo(MeterRegistry registry) {
+    meterRegistry = registry;
+    for (Replica replica : replicas) {
+      Gauge.builder("jdbc.replica.lag", replica, r -> r.lag != null ? r.lag.toMillis() / 1000.0 : Double.NaN)
+          .tag("replica", replica.name)
+          .baseUnit("seconds")
+          .register(registry);
+      HikariDataSource hikari = hikari(replica.dataSource);
+      if (hikari != null && hikari.getHikariPoolMXBean() == null) {
+        hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    for (Replica replica : replicas) {
+      close(replica.dataSource);
+    }
+    close(primary);
+  }
+
+  private void close(DataSource dataSource) {
+    HikariDataSource hikari = hikari(dataSource);
+    if (hikari != null) {
+      hikari.close();
+    }
+  }
+
+  private static HikariDataSource hikari(DataSource dataSource) {
+    try {
+      return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+    } catch (SQLException e) {
+      return null;
+    }
+  }
+
+  private Connection route(String target, String reason, DataSource dataSource) throws SQLException {
+    Connection connection = dataSource.getConnection();
+    MeterRegistry registry = meterRegistry;
+    if (registry != null) {
+      registry.counter("jdbc.routing.reads", "target", target, "reason", reason).increment();
+    }
+    return connection;
+  }
+
+  /**
+   * Destino das conexões somente leitura.
+   */
+  private class ReadOnlyTarget extends AbstractDataSource {
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      if (ReadYourWrites.primaryRequired()) {
+        return route(PRIMARY, "read-your-writes", primary);
+      }
+
+      boolean failed = false;
+      int start = next.getAndIncrement();
+      for (int i = 0; i < replicas.size(); i++) {
+        Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+        Duration lag = replica.lag;
+        if (lag == null || lag.compareTo(maxLag) > 0) {
+          continue;
+        }
+        try {
+          return route(replica.name, "replica", replica.dataSource);
+        } catch (SQLException e) {
+          replica.lag = null;
+          failed = true;
+          log.warn("Réplica {} recusou a conexão; leituras vão ao primário: {}", replica.name, e.getMessage());
+        }
+      }
+      return route(PRIMARY, failed ? "failure" : "unavailable", primary);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+      return primary.getConnection(username, password);
+    }
+
+  }
+
+}
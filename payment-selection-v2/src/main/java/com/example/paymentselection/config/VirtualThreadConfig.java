@@ -0,0 +1,84 @@
+package com.example.paymentselection.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+/**
+ * Ajustes do modo de threads virtuais ({@code spring.threads.virtual.enabled=true}, perfil
+ * {@code virtual-threads}): Tomcat, {@code @Async} e {@code @Scheduled} passam a usar threads virtuais,
+ * e o pool JDBC ganha o {@link GatedDataSource} na frente.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+  /**
+   * Envolve o pool Hikari no {@link GatedDataSource}; roda antes do roteamento para réplicas
+   * ({@link ReplicaRoutingConfig}), que recebe o pool já envolvido.
+   */
+  @Bean
+  static BeanPostProcessor gatedDataSourcePostProcessor(Environment environment) {
+    return new GatePostProcessor(environment);
+  }
+
+  /**
+   * Semáforo na frente do pool; as permissões são, por padrão, o tamanho do pool.
+   */
+  static GatedDataSource gate(HikariDataSource hikari, Environment environment) {
+    int permits = environment.getProperty("connection-gate.permits", Integer.class, hikari.getMaximumPoolSize());
+    Duration timeout = environment.getProperty("connection-gate.timeout", Duration.class, Duration.ofSeconds(60));
+    return new GatedDataSource(hikari, permits, timeout);
+  }
+
+  private record GatePostProcessor(Environment environment) implements BeanPostProcessor, Ordered {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+      if (!(bean instanceof HikariDataSource hikari)) {
+        return bean;
+      }
+
+      GatedDataSource gate = gate(hikari, environment);
+      log.info("Conexões JDBC limitadas a {} por semáforo (espera máxima de {})", gate.available(), gate.timeout());
+      return gate;
+    }
+
+    @Override
+    public int getOrder() {
+      return Ordered.HIGHEST_PRECEDENCE;
+    }
+  }
+
+  /**
+   * Métricas do semáforo: {@code jdbc.connections.gate.waiting} (requisições na fila) e
+   * {@code jdbc.connections.gate.available} (permissões livres).
+   */
+  @Bean
+  MeterBinder connectionGateMetrics(DataSource dataSource) {
+    return registry -> {
+      try {
+        if (!dataSource.isWrapperFor(GatedDataSource.class)) {
+          return;
+        }
+        GatedDataSource gate = dataSource.unwrap(GatedDataSource.class);
+        Gauge.builder("jdbc.connections.gate.waiting", gate, GatedDataSource::waiting).register(registry);
+        Gauge.builder("jdbc.connections.gate.available", gate, GatedDataSource::available).register(registry);
+      } catch (SQLException e) {
+        log.warn("Métricas do semáforo de conexões indisponíveis", e);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,68 @@
+package com.example.paymentselection.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Detecta threads virtuais presas à thread portadora (pinning) por mais de {@code threshold}, ex.: ao
+ * bloquear em I/O dentro de um bloco {@code synchronized} do driver JDBC ou do pool. Cada ocorrência é
+ * registrada em log com o topo da pilha, para localizar o trecho a trocar por {@code ReentrantLock}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+  private static final int STACK_DEPTH = 8;
+
+  @Value("${virtual-threads.pinning.threshold:PT0.02S}")
+  private Duration threshold = Duration.ofMillis(20);
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Counter pinned;
+
+  private RecordingStream stream;
+
+  @PostConstruct
+  void start() {
+    pinned = meterRegistry.counter("jvm.threads.virtual.pinned");
+    stream = new RecordingStream();
+    stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+    stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+    stream.startAsync();
+    log.info("Monitorando pinning de threads virtuais acima de {}", threshold);
+  }
+
+  @PreDestroy
+  void stop() {
+    stream.close();
+  }
+
+  void onPinned(RecordedEvent event) {
+    pinned.increment();
+    String frames = event.getStackTrace() == null ? "(sem pilha)" : event.getStackTrace().getFrames().stream()
+        .limit(STACK_DEPTH)
+        .map(VirtualThreadPinningMonitor::format)
+        .collect(Collectors.joining("\n\tat ", "\n\tat ", ""));
+    log.warn("Thread virtual presa à portadora por {} ms{}", event.getDuration().toMillis(), frames);
+  }
+
+  private static String format(RecordedFrame frame) {
+    return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+  }
+
+}
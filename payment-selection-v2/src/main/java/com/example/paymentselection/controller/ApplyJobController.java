@@ -0,0 +1,60 @@
+package com.example.paymentselection.controller;
+
+import com.example.paymentselection.dto.ApplyJobResponse;
+import com.example.paymentselection.service.ApplyJobProgressPublisher;
+import com.example.paymentselection.service.ApplyJobService;
+import com.example.paymentselection.service.UserService;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Controlador REST para acompanhamento dos jobs de aplicação em lote.
+ */
+@RestController
+@RequestMapping("/apply-jobs")
+@CrossOrigin(origins = "*")
+public class ApplyJobController {
+
+  @Autowired
+  private ApplyJobService applyJobService;
+
+  @Autowired
+  private ApplyJobProgressPublisher applyJobProgressPublisher;
+
+  @Autowired
+  private UserService userService;
+
+  /**
+   * Estado, linhas processadas e vazão do job.
+   */
+  @GetMapping("/{id}")
+  public ResponseEntity<ApplyJobResponse> get(@PathVariable UUID id) {
+    UUID userId = userService.getCurrentUserId();
+    ApplyJobResponse response = applyJobService.find(id, userId)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Job não encontrado"));
+
+    return ResponseEntity.ok(response);
+  }
+
+  /**
+   * Stream SSE com o andamento do job (evento {@code progress}, com os campos do GET), enviado quando o job
+   * avança e encerrado quando ele termina.
+   */
+  @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter events(@PathVariable UUID id) {
+    UUID userId = userService.getCurrentUserId();
+    return applyJobProgressPublisher.subscribe(id, userId)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Job não encontrado"));
+  }
+
+}
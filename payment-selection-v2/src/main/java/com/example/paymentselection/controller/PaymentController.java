@@ -1,6 +1,10 @@
 package com.example.paymentselection.controller;
 
-import com.example.paymentselection.entity.Payment;
+import com.example.paymentselection.dto.PaymentCountResponse;
+import com.example.paymentselection.dto.PaymentCursorPage;
+import com.example.paymentselection.dto.PaymentSlice;
+import com.example.paymentselection.dto.PaymentSummary;
+import com.example.paymentselection.repository.spec.PaymentCursor;
 import com.example.paymentselection.service.PaymentService;
 import java.time.LocalDate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,12 +13,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * Controlador REST para gerenciamento de pagamentos.
@@ -24,6 +30,8 @@ import org.springframework.web.bind.annotation.RestController;
 @CrossOrigin(origins = "*")
 public class PaymentController {
 
+  private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
   @Autowired
   private PaymentService paymentService;
 
@@ -31,15 +39,79 @@ public class PaymentController {
    * Busca pagamentos com filtros e paginação.
    */
   @GetMapping("/search")
-  public ResponseEntity<Page<Payment>> searchPayments(
+  public ResponseEntity<Page<PaymentSummary>> searchPayments(
       @RequestParam(required = false) String status, //
       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate vencimentoAte,
       @PageableDefault(sort = "id", direction = Sort.Direction.ASC) Pageable pageable
   ) {
-    Page<Payment> payments = paymentService.searchPayments(status, vencimentoAte, pageable);
+    Page<PaymentSummary> payments = paymentService.searchPayments(status, vencimentoAte, pageable);
+
+    return ResponseEntity.ok(payments);
+  }
+
+  /**
+   * Busca pagamentos com filtros e paginação, sem a consulta de contagem (total estimado).
+   */
+  @GetMapping("/search/slice")
+  public ResponseEntity<PaymentSlice> searchPaymentsSlice(
+      @RequestParam(required = false) String status, //
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate vencimentoAte,
+      @PageableDefault(sort = "id", direction = Sort.Direction.ASC) Pageable pageable
+  ) {
+    PaymentSlice payments = paymentService.searchPaymentsSlice(status, vencimentoAte, pageable);
+
+    return ResponseEntity.ok(payments);
+  }
+
+  /**
+   * Contagem de pagamentos do filtro. Responde 200 com a contagem exata, se disponível; caso contrário
+   * 202 com a estimativa, enquanto a contagem exata é calculada em segundo plano.
+   */
+  @GetMapping("/count")
+  public ResponseEntity<PaymentCountResponse> countPayments(
+      @RequestParam(required = false) String status, //
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate vencimentoAte
+  ) {
+    PaymentCountResponse count = paymentService.countPayments(status, vencimentoAte);
+
+    return ResponseEntity.status(count.exact() ? HttpStatus.OK : HttpStatus.ACCEPTED).body(count);
+  }
+
+  /**
+   * Busca pagamentos com filtros e paginação por cursor (ordem por vencimento e id).
+   * O tempo de resposta não depende da profundidade da página, ao contrário de {@code /search}.
+   */
+  @GetMapping("/search/cursor")
+  public ResponseEntity<PaymentCursorPage> searchPaymentsByCursor(
+      @RequestParam(required = false) String status, //
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate vencimentoAte,
+      @RequestParam(required = false) String after, //
+      @RequestParam(required = false) String before, //
+      @RequestParam(defaultValue = "10") int size
+  ) {
+    if (after != null && before != null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe apenas um dos cursores: after ou before");
+    }
+    if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size deve estar entre 1 e " + MAX_CURSOR_PAGE_SIZE);
+    }
+
+    PaymentCursorPage payments = paymentService.searchPaymentsByCursor(status, vencimentoAte,
+        decodeCursor(after), decodeCursor(before), size);
 
     return ResponseEntity.ok(payments);
   }
 
+  private static PaymentCursor decodeCursor(String token) {
+    if (token == null || token.isBlank()) {
+      return null;
+    }
+    try {
+      return PaymentCursor.decode(token);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+
 }
 
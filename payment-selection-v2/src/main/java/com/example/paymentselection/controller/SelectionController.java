@@ -1,23 +1,37 @@
 package com.example.paymentselection.controller;
 
 import com.example.paymentselection.dto.ApplySelectionRequest;
+import com.example.paymentselection.dto.ApplySelectionResponse;
+import com.example.paymentselection.dto.BatchUpdateSelectionRequest;
 import com.example.paymentselection.dto.CreateSelectionRequest;
+import com.example.paymentselection.dto.SelectionOperation;
 import com.example.paymentselection.dto.SelectionResponse;
 import com.example.paymentselection.dto.UpdateSelectionRequest;
+import com.example.paymentselection.enums.ExportFormat;
+import com.example.paymentselection.service.CachedSelection;
+import com.example.paymentselection.service.SelectionExportService;
 import com.example.paymentselection.service.SelectionService;
 import com.example.paymentselection.service.UserService;
+import com.example.paymentselection.util.BitmapDeserializer;
 import jakarta.validation.Valid;
+import java.net.URI;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Controlador REST para gerenciamento de seleções de pagamentos.
@@ -27,12 +41,24 @@ import org.springframework.web.bind.annotation.RestController;
 @CrossOrigin(origins = "*")
 public class SelectionController {
 
+  private static final int MAX_PAGE_SIZE = 1000;
+
+  /**
+   * IDs somados de todas as operações de um PATCH em lote: cada bitmap já é limitado a
+   * {@link BitmapDeserializer#MAX_IDS}, mas até 1000 operações poderiam tocar bilhões de IDs. Equivale a um
+   * PATCH simples com os dois bitmaps cheios.
+   */
+  private static final long MAX_BATCH_IDS = 2 * BitmapDeserializer.MAX_IDS;
+
   @Autowired
   private SelectionService selectionService;
 
   @Autowired
   private UserService userService;
 
+  @Autowired
+  private SelectionExportService selectionExportService;
+
   /**
    * Cria uma nova sessão de seleção.
    */
@@ -53,23 +79,100 @@ public class SelectionController {
       @RequestBody UpdateSelectionRequest request //
   ) {
     UUID userId = userService.getCurrentUserId();
-      SelectionResponse response = selectionService.update(id, userId, request);
+    SelectionResponse response = selectionService.update(id, userId, request);
+
+    return ResponseEntity.ok(response);
+  }
+
+  /**
+   * Atualiza uma sessão de seleção com uma lista de operações, aplicadas em ordem numa única atualização.
+   */
+  @PatchMapping("/{id}/operations")
+  public ResponseEntity<SelectionResponse> updateBatch(
+      @PathVariable UUID id, //
+      @Valid @RequestBody BatchUpdateSelectionRequest request //
+  ) {
+    long ids = 0;
+    for (int i = 0; i < request.operations().size(); i++) {
+      validate(i, request.operations().get(i));
+      ids += idCount(request.operations().get(i));
+    }
+    if (ids > MAX_BATCH_IDS) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "As operações tocam mais de " + MAX_BATCH_IDS + " IDs no total");
+    }
+
+    UUID userId = userService.getCurrentUserId();
+    SelectionResponse response = selectionService.updateBatch(id, userId, request.operations());
 
     return ResponseEntity.ok(response);
   }
 
   /**
-   * Aplica a ação em lote.
+   * Aplica a ação em lote, em segundo plano; o andamento é consultado em {@code /apply-jobs/{jobId}}.
    */
   @PostMapping("/{id}/apply")
-  public ResponseEntity<Void> apply(
+  public ResponseEntity<ApplySelectionResponse> apply(
       @PathVariable UUID id, //
       @Valid @RequestBody ApplySelectionRequest request //
   ) {
     UUID userId = userService.getCurrentUserId();
-    selectionService.apply(id, userId, request);
+    UUID jobId = selectionService.apply(id, userId, request);
+
+    return ResponseEntity.accepted()
+        .location(URI.create("/apply-jobs/" + jobId))
+        .body(new ApplySelectionResponse(jobId));
+  }
 
-    return ResponseEntity.ok().build();
+  /**
+   * Exporta os pagamentos da seleção em streaming (NDJSON ou CSV).
+   */
+  @GetMapping("/{id}/export")
+  public ResponseEntity<StreamingResponseBody> export(
+      @PathVariable UUID id, //
+      @RequestParam(defaultValue = "NDJSON") ExportFormat format //
+  ) {
+    UUID userId = userService.getCurrentUserId();
+    CachedSelection selection = selectionExportService.find(id, userId);
+    StreamingResponseBody body = out -> selectionExportService.export(selection, format, out);
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(format.contentType()))
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"selection-" + id + "." + format.extension() + "\"")
+        .body(body);
+  }
+
+  private static void validate(int index, SelectionOperation operation) {
+    String problem = switch (operation.type()) {
+      case MODE -> operation.mode() == null ? "mode é obrigatório" : null;
+      case INCLUDE, EXCLUDE -> operation.ids() == null && operation.bitmap() == null
+          ? "ids ou bitmap é obrigatório" : null;
+      case SELECT_PAGE, DESELECT_PAGE -> {
+        if (operation.page() == null || operation.page() < 0) {
+          yield "page deve ser maior ou igual a 0";
+        }
+        if (operation.size() == null || operation.size() < 1 || operation.size() > MAX_PAGE_SIZE) {
+          yield "size deve estar entre 1 e " + MAX_PAGE_SIZE;
+        }
+        yield null;
+      }
+    };
+    if (problem != null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Operação " + index + " (" + operation.type() + "): " + problem);
+    }
+  }
+
+  /**
+   * IDs informados na operação (ou tamanho da página), sem descontar repetições.
+   */
+  private static long idCount(SelectionOperation operation) {
+    return switch (operation.type()) {
+      case MODE -> 0;
+      case INCLUDE, EXCLUDE -> (operation.ids() != null ? operation.ids().size() : 0)
+          + (operation.bitmap() != null ? operation.bitmap().getLongCardinality() : 0);
+      case SELECT_PAGE, DESELECT_PAGE -> operation.size();
+    };
   }
 
 }
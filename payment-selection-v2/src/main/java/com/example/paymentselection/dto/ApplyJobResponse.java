@@ -0,0 +1,59 @@
+package com.example.paymentselection.dto;
+
+import com.example.paymentselection.entity.ApplyJob;
+import com.example.paymentselection.enums.Action;
+import com.example.paymentselection.enums.ApplyJobStatus;
+import com.example.paymentselection.repository.projection.ApplyJobProgress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * DTO com o andamento de um job de aplicação em lote; {@code rowsPerSecond} é a vazão desde o início
+ * da execução (até o fim, se já terminou) e {@code etaSeconds}, o tempo restante estimado a essa vazão
+ * para as {@code estimatedRows} previstas (nulo enquanto não há vazão ou estimativa; zero ao terminar).
+ */
+public record ApplyJobResponse(
+        UUID jobId,
+        UUID selectionId,
+        Action action,
+        ApplyJobStatus status,
+        long rowsProcessed,
+        Long estimatedRows,
+        int chunks,
+        int partitions,
+        Double rowsPerSecond,
+        Double etaSeconds,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt,
+        String error
+) {
+
+    public static ApplyJobResponse of(ApplyJob job, Instant now) {
+        return of(new ApplyJobProgress(job.getId(), job.getSelectionId(), job.getUserId(), job.getAction(),
+            job.getStatus(), job.getRowsAffected(), job.getEstimatedRows(), job.getChunks(), job.getPartitions(),
+            job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt(), job.getError()), now);
+    }
+
+    public static ApplyJobResponse of(ApplyJobProgress job, Instant now) {
+        Double rowsPerSecond = null;
+        if (job.startedAt() != null) {
+            Instant end = job.finishedAt() != null ? job.finishedAt() : now;
+            long millis = Math.max(Duration.between(job.startedAt(), end).toMillis(), 1);
+            rowsPerSecond = job.rowsAffected() * 1000.0 / millis;
+        }
+
+        Double etaSeconds = null;
+        if (job.status().finished()) {
+            etaSeconds = 0.0;
+        } else if (job.estimatedRows() != null && rowsPerSecond != null && rowsPerSecond > 0) {
+            // Linhas já pagas/canceladas não são afetadas, então o total real pode ficar abaixo da estimativa
+            etaSeconds = Math.max(job.estimatedRows() - job.rowsAffected(), 0) / rowsPerSecond;
+        }
+
+        return new ApplyJobResponse(job.id(), job.selectionId(), job.action(), job.status(),
+            job.rowsAffected(), job.estimatedRows(), job.chunks(), job.partitions(), rowsPerSecond,
+            etaSeconds, job.createdAt(), job.startedAt(), job.finishedAt(), job.error());
+    }
+}
@@ -1,13 +1,27 @@
 package com.example.paymentselection.dto;
 
 import com.example.paymentselection.enums.Action;
+import com.example.paymentselection.util.BitmapDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.validation.constraints.NotNull;
+import java.util.List;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 /**
  * DTO para requisição de aplicação de uma ação em lote.
+ * {@code paymentIds} (opcional) são IDs marcados no frontend que ainda não foram enviados por PATCH;
+ * são somados à seleção antes da aplicação. Listas grandes podem ir em {@code paymentBitmap} (bitmap
+ * Roaring em Base64).
  */
 public record ApplySelectionRequest(
         @NotNull
-        Action action
-) {}
+        Action action,
+        List<Long> paymentIds,
+        @JsonDeserialize(using = BitmapDeserializer.class)
+        Roaring64NavigableMap paymentBitmap
+) {
 
+    public ApplySelectionRequest(Action action, List<Long> paymentIds) {
+        this(action, paymentIds, null);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.paymentselection.dto;
+
+import java.util.UUID;
+
+/**
+ * DTO para resposta do apply: ID do job que aplica a ação em segundo plano.
+ */
+public record ApplySelectionResponse(
+        UUID jobId
+) {}
@@ -0,0 +1,17 @@
+package com.example.paymentselection.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO para requisição de atualização em lote de uma sessão de seleção: operações aplicadas em ordem.
+ */
+public record BatchUpdateSelectionRequest(
+        @NotEmpty
+        @Size(max = 1000)
+        List<@Valid @NotNull SelectionOperation> operations
+) {}
@@ -0,0 +1,9 @@
+package com.example.paymentselection.dto;
+
+/**
+ * DTO para a contagem de pagamentos de um filtro: exata ou, enquanto ela é calculada, estimada.
+ */
+public record PaymentCountResponse(
+        Long total,
+        boolean exact
+) {}
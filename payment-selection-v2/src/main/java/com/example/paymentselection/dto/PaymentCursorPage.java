@@ -0,0 +1,12 @@
+package com.example.paymentselection.dto;
+
+import java.util.List;
+
+/**
+ * DTO para uma página da busca por cursor; {@code next}/{@code previous} são nulos quando não há mais páginas.
+ */
+public record PaymentCursorPage(
+        List<PaymentSummary> content,
+        String next,
+        String previous
+) {}
@@ -0,0 +1,18 @@
+package com.example.paymentselection.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * DTO para uma linha da exportação de pagamentos (lida diretamente do cursor JDBC).
+ */
+public record PaymentExportRow(
+        long id,
+        String status,
+        LocalDate vencimento,
+        BigDecimal valor,
+        String descricao,
+        Instant createdAt,
+        Instant updatedAt
+) {}
@@ -0,0 +1,16 @@
+package com.example.paymentselection.dto;
+
+import java.util.List;
+
+/**
+ * DTO para uma página da busca sem contagem: {@code hasNext} vem da própria consulta e o total é
+ * estimado ({@code totalExact} indica se o valor veio de uma contagem exata em cache).
+ */
+public record PaymentSlice(
+        List<PaymentSummary> content,
+        int page,
+        int size,
+        boolean hasNext,
+        Long total,
+        boolean totalExact
+) {}
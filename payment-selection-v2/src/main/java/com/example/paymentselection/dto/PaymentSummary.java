@@ -0,0 +1,19 @@
+package com.example.paymentselection.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * DTO (projeção) de um pagamento nas buscas: lido direto da consulta, sem passar pelo contexto de
+ * persistência; o JSON tem os mesmos campos da entidade.
+ */
+public record PaymentSummary(
+        Long id,
+        String status,
+        LocalDate vencimento,
+        BigDecimal valor,
+        String descricao,
+        Instant createdAt,
+        Instant updatedAt
+) {}
@@ -0,0 +1,39 @@
+package com.example.paymentselection.dto;
+
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.enums.SelectionOperationType;
+import com.example.paymentselection.util.BitmapDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import jakarta.validation.constraints.NotNull;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.util.List;
+
+/**
+ * DTO de uma operação do PATCH em lote: {@code mode} para MODE, {@code ids} e/ou {@code bitmap} (bitmap
+ * Roaring em Base64) para INCLUDE/EXCLUDE e {@code page}/{@code size} (página de {@code /api/payments/search},
+ * em ordem de id) para SELECT_PAGE/DESELECT_PAGE.
+ */
+public record SelectionOperation(
+        @NotNull
+        SelectionOperationType type,
+        Mode mode,
+        List<Long> ids,
+        @JsonDeserialize(using = BitmapDeserializer.class)
+        Roaring64NavigableMap bitmap,
+        Integer page,
+        Integer size
+) {
+
+    public static SelectionOperation mode(Mode mode) {
+        return new SelectionOperation(SelectionOperationType.MODE, mode, null, null, null, null);
+    }
+
+    public static SelectionOperation include(List<Long> ids, Roaring64NavigableMap bitmap) {
+        return new SelectionOperation(SelectionOperationType.INCLUDE, null, ids, bitmap, null, null);
+    }
+
+    public static SelectionOperation exclude(List<Long> ids, Roaring64NavigableMap bitmap) {
+        return new SelectionOperation(SelectionOperationType.EXCLUDE, null, ids, bitmap, null, null);
+    }
+}
@@ -1,15 +1,28 @@
 package com.example.paymentselection.dto;
 
 import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.util.BitmapDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import java.util.List;
 
 /**
  * DTO para requisição de atualização de uma sessão de seleção.
+ * Listas grandes de IDs podem ir em {@code includeBitmap}/{@code excludeBitmap} (bitmap Roaring em Base64),
+ * somadas a {@code includeIds}/{@code excludeIds}.
  */
 public record UpdateSelectionRequest(
         Mode mode,
         List<Long> includeIds,
-        List<Long> excludeIds
-) {}
+        List<Long> excludeIds,
+        @JsonDeserialize(using = BitmapDeserializer.class)
+        Roaring64NavigableMap includeBitmap,
+        @JsonDeserialize(using = BitmapDeserializer.class)
+        Roaring64NavigableMap excludeBitmap
+) {
 
+    public UpdateSelectionRequest(Mode mode, List<Long> includeIds, List<Long> excludeIds) {
+        this(mode, includeIds, excludeIds, null, null);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.paymentselection.entity;
+
+import com.example.paymentselection.enums.Action;
+import com.example.paymentselection.enums.ApplyJobStatus;
+import com.example.paymentselection.enums.Mode;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Entidade que representa a aplicação em lote de uma seleção, processada em lotes por ordem de id.
+ * Guarda uma cópia do estado da seleção e o total já aplicado; os checkpoints ficam nas partições.
+ */
+@Entity
+@Table(name = "apply_job", indexes = {
+    @Index(name = "idx_apply_job_status_heartbeat", columnList = "status, heartbeat_at")
+})
+@Getter
+@Setter
+public class ApplyJob {
+
+  @Id
+  private UUID id;
+
+  @Column(name = "selection_id", nullable = false)
+  private UUID selectionId;
+
+  @Column(name = "user_id", nullable = false)
+  private UUID userId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private Action action;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private Mode mode;
+
+  @Column(name = "filter_status")
+  private String filterStatus;
+
+  @Column(name = "filter_vencimento_ate")
+  private LocalDate filterVencimentoAte;
+
+  /**
+   * IDs incluídos (modo NONE) ou excluídos (modo ALL), como bitmap Roaring.
+   */
+  @Column(columnDefinition = "bytea", nullable = false)
+  private byte[] ids;
+
+  /**
+   * Maior id de pagamento no início do job; pagamentos criados depois não são alcançados (modo ALL).
+   */
+  @Column(name = "max_id", nullable = false)
+  private Long maxId;
+
+  /**
+   * Quantidade de faixas de ids processadas em paralelo (checkpoints em {@link ApplyJobPartition}).
+   */
+  @Column(nullable = false)
+  private Integer partitions = 1;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private ApplyJobStatus status = ApplyJobStatus.PENDING;
+
+  @Column(nullable = false)
+  private Integer chunks = 0;
+
+  @Column(name = "rows_affected", nullable = false)
+  private Long rowsAffected = 0L;
+
+  /**
+   * Itens selecionados no apply; base da estimativa de tempo restante (nulo em jobs antigos).
+   */
+  @Column(name = "estimated_rows")
+  private Long estimatedRows;
+
+  /**
+   * Nó que executa o job; outro nó só o assume depois que o {@code heartbeatAt} expirar.
+   */
+  @Column(length = 100)
+  private String owner;
+
+  @Column(name = "heartbeat_at")
+  private Instant heartbeatAt;
+
+  @Column(name = "created_at", nullable = false)
+  private Instant createdAt;
+
+  @Column(name = "started_at")
+  private Instant startedAt;
+
+  @Column(name = "finished_at")
+  private Instant finishedAt;
+
+  @Column(length = 1000)
+  private String error;
+
+}
@@ -0,0 +1,76 @@
+package com.example.paymentselection.entity;
+
+import com.example.paymentselection.enums.ApplyJobStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Faixa de ids {@code (fromId, toId]} de um job de aplicação, processada em paralelo às demais faixas
+ * e com checkpoint próprio ({@code lastId}).
+ */
+@Entity
+@Table(name = "apply_job_partition", indexes = {
+    @Index(name = "idx_apply_job_partition_job_id", columnList = "job_id, partition_no")
+})
+@Getter
+@Setter
+public class ApplyJobPartition {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "job_id", nullable = false)
+  private UUID jobId;
+
+  @Column(name = "partition_no", nullable = false)
+  private Integer partitionNo;
+
+  @Column(name = "from_id", nullable = false)
+  private Long fromId;
+
+  @Column(name = "to_id", nullable = false)
+  private Long toId;
+
+  /**
+   * Checkpoint: maior id da faixa já processado por um lote confirmado.
+   */
+  @Column(name = "last_id", nullable = false)
+  private Long lastId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private ApplyJobStatus status = ApplyJobStatus.PENDING;
+
+  @Column(name = "chunk_size", nullable = false)
+  private Integer chunkSize;
+
+  @Column(nullable = false)
+  private Integer chunks = 0;
+
+  @Column(name = "rows_affected", nullable = false)
+  private Long rowsAffected = 0L;
+
+  public ApplyJobPartition() {
+  }
+
+  public ApplyJobPartition(UUID jobId, int partitionNo, long fromId, long toId, int chunkSize) {
+    this.jobId = jobId;
+    this.partitionNo = partitionNo;
+    this.fromId = fromId;
+    this.toId = toId;
+    this.lastId = fromId;
+    this.chunkSize = chunkSize;
+  }
+
+}
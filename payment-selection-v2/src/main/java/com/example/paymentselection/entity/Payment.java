@@ -2,9 +2,11 @@ package com.example.paymentselection.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -17,7 +19,13 @@ import lombok.Setter;
  * Entidade que representa um pagamento no sistema.
  */
 @Entity
-@Table(name = "payment")
+// Os índices são criados pelas migrações (db/migration); os daqui valem para o schema gerado pelo Hibernate (H2)
+@Table(name = "payment", indexes = {
+    // Paginação por cursor: filtro por status + ordenação (vencimento, id), com ou sem status
+    @Index(name = "idx_payment_status_vencimento_id", columnList = "status, vencimento, id"),
+    @Index(name = "idx_payment_vencimento_id", columnList = "vencimento, id")
+})
+@EntityListeners(PaymentWriteListener.class)
 @Getter
 @Setter
 public class Payment {
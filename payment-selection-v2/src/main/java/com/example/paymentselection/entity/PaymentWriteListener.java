@@ -0,0 +1,24 @@
+package com.example.paymentselection.entity;
+
+import com.example.paymentselection.repository.PaymentTableVersion;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Listener JPA que registra escritas de entidades {@link Payment} na {@link PaymentTableVersion}.
+ */
+public class PaymentWriteListener {
+
+  @Autowired
+  private PaymentTableVersion paymentTableVersion;
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  public void onWrite(Payment payment) {
+    paymentTableVersion.markWritten();
+  }
+
+}
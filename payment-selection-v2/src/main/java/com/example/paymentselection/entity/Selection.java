@@ -39,18 +39,48 @@ public class Selection {
   @Column(name = "filter_json", nullable = false, columnDefinition = "jsonb")
   private String filterJson;
 
+  /**
+   * Formato legado (array JSON); lido apenas para migrar seleções antigas para o bitmap.
+   */
   @JdbcTypeCode(SqlTypes.JSON)
   @Column(name = "include_ids", columnDefinition = "jsonb")
   private String includeIds = "[]";
 
+  /**
+   * Formato legado (array JSON); lido apenas para migrar seleções antigas para o bitmap.
+   */
   @JdbcTypeCode(SqlTypes.JSON)
   @Column(name = "exclude_ids", columnDefinition = "jsonb")
   private String excludeIds = "[]";
 
+  /**
+   * IDs incluídos, serializados como bitmap Roaring (formato portável).
+   */
+  @Column(name = "include_bitmap", columnDefinition = "bytea")
+  private byte[] includeBitmap;
+
+  /**
+   * IDs excluídos, serializados como bitmap Roaring (formato portável).
+   */
+  @Column(name = "exclude_bitmap", columnDefinition = "bytea")
+  private byte[] excludeBitmap;
+
   @Version
   @Column(nullable = false)
   private Integer version = 0;
 
+  /**
+   * Versão até a qual os deltas já foram incorporados aos bitmaps (snapshot).
+   */
+  @Column(name = "snapshot_version", nullable = false)
+  private Integer snapshotVersion = 0;
+
+  /**
+   * Quantidade de pagamentos selecionados, mantida incrementalmente a cada atualização.
+   */
+  @Column(name = "selected_count")
+  private Long selectedCount;
+
   @Column(name = "created_at", nullable = false)
   private Instant createdAt;
 
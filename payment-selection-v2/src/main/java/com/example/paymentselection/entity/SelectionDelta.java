@@ -0,0 +1,67 @@
+package com.example.paymentselection.entity;
+
+import com.example.paymentselection.enums.DeltaOperation;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Entidade que representa uma alteração (append-only) aplicada a uma sessão de seleção.
+ */
+@Entity
+@Table(name = "selection_delta", indexes = {
+    @Index(name = "idx_selection_delta_selection_id", columnList = "selection_id, version")
+})
+@Getter
+@Setter
+public class SelectionDelta {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "selection_id", nullable = false)
+  private UUID selectionId;
+
+  /**
+   * Versão da seleção produzida por este delta.
+   */
+  @Column(nullable = false)
+  private Integer version;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private DeltaOperation op;
+
+  /**
+   * IDs afetados, serializados como bitmap Roaring (formato portável).
+   */
+  @Column(nullable = false, columnDefinition = "bytea")
+  private byte[] ids;
+
+  @Column(name = "created_at", nullable = false)
+  private Instant createdAt;
+
+  public SelectionDelta() {
+    this.createdAt = Instant.now();
+  }
+
+  public SelectionDelta(UUID selectionId, Integer version, DeltaOperation op, byte[] ids) {
+    this();
+    this.selectionId = selectionId;
+    this.version = version;
+    this.op = op;
+    this.ids = ids;
+  }
+
+}
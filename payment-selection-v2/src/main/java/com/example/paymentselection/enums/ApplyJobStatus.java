@@ -0,0 +1,22 @@
+package com.example.paymentselection.enums;
+
+/**
+ * Enum que representa a situação de um job de aplicação em lote.
+ * PENDING: criado, aguardando o primeiro lote
+ * RUNNING: em execução (ou interrompido, aguardando retomada a partir do último checkpoint)
+ * COMPLETED: todos os lotes aplicados
+ * FAILED: interrompido por erro
+ */
+public enum ApplyJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED;
+
+    /**
+     * Situação final: o job não muda mais.
+     */
+    public boolean finished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
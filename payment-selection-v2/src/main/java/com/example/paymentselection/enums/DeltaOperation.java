@@ -0,0 +1,11 @@
+package com.example.paymentselection.enums;
+
+/**
+ * Enum que representa as operações registradas no log de deltas da seleção.
+ * SELECT: marca os IDs (inclui em modo NONE, remove da exclusão em modo ALL)
+ * DESELECT: desmarca os IDs (exclui em modo ALL, remove da inclusão em modo NONE)
+ */
+public enum DeltaOperation {
+    SELECT,
+    DESELECT
+}
@@ -0,0 +1,27 @@
+package com.example.paymentselection.enums;
+
+/**
+ * Enum que representa o formato de exportação de uma seleção.
+ * NDJSON: um objeto JSON por linha
+ * CSV: valores separados por vírgula, com linha de cabeçalho
+ */
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+}
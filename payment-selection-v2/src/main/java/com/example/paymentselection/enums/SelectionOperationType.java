@@ -0,0 +1,31 @@
+package com.example.paymentselection.enums;
+
+/**
+ * Enum que representa as operações aceitas no PATCH em lote de uma seleção.
+ * MODE: troca o modo (descarta as operações anteriores do lote)
+ * INCLUDE / EXCLUDE: marca / desmarca os IDs informados
+ * SELECT_PAGE / DESELECT_PAGE: marca / desmarca os IDs de uma página da busca, no filtro da seleção
+ */
+public enum SelectionOperationType {
+    MODE(null, false),
+    INCLUDE(DeltaOperation.SELECT, false),
+    EXCLUDE(DeltaOperation.DESELECT, false),
+    SELECT_PAGE(DeltaOperation.SELECT, true),
+    DESELECT_PAGE(DeltaOperation.DESELECT, true);
+
+    private final DeltaOperation deltaOperation;
+    private final boolean page;
+
+    SelectionOperationType(DeltaOperation deltaOperation, boolean page) {
+        this.deltaOperation = deltaOperation;
+        this.page = page;
+    }
+
+    public DeltaOperation deltaOperation() {
+        return deltaOperation;
+    }
+
+    public boolean page() {
+        return page;
+    }
+}
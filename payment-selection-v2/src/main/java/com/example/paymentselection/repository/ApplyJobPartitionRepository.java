@@ -0,0 +1,41 @@
+package com.example.paymentselection.repository;
+
+import com.example.paymentselection.entity.ApplyJobPartition;
+import com.example.paymentselection.enums.ApplyJobStatus;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositório para as partições (faixas de ids) dos jobs de aplicação em lote.
+ */
+@Repository
+public interface ApplyJobPartitionRepository extends JpaRepository<ApplyJobPartition, Long> {
+
+  List<ApplyJobPartition> findByJobIdOrderByPartitionNo(UUID jobId);
+
+  /**
+   * Registra um lote confirmado da partição.
+   */
+  @Modifying
+  @Query("""
+    update ApplyJobPartition p
+       set p.lastId = :lastId,
+           p.rowsAffected = p.rowsAffected + :rows,
+           p.chunks = p.chunks + 1,
+           p.chunkSize = :chunkSize,
+           p.status = com.example.paymentselection.enums.ApplyJobStatus.RUNNING
+     where p.id = :id
+  """)
+  int checkpoint(@Param("id") Long id, @Param("lastId") long lastId, @Param("rows") int rows,
+      @Param("chunkSize") int chunkSize);
+
+  @Modifying
+  @Query("update ApplyJobPartition p set p.status = :status where p.id = :id")
+  int updateStatus(@Param("id") Long id, @Param("status") ApplyJobStatus status);
+
+}
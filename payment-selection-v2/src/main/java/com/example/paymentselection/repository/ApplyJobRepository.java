@@ -0,0 +1,115 @@
+package com.example.paymentselection.repository;
+
+import com.example.paymentselection.entity.ApplyJob;
+import com.example.paymentselection.enums.ApplyJobStatus;
+import com.example.paymentselection.repository.projection.ApplyJobProgress;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositório para os jobs de aplicação em lote.
+ */
+@Repository
+public interface ApplyJobRepository extends JpaRepository<ApplyJob, UUID> {
+
+  /**
+   * Assume o job para {@code owner}, se ele estiver livre, já for deste nó ou se o heartbeat tiver expirado.
+   */
+  @Modifying
+  @Query("""
+    update ApplyJob j
+       set j.owner = :owner,
+           j.heartbeatAt = :now,
+           j.startedAt = coalesce(j.startedAt, :now),
+           j.status = com.example.paymentselection.enums.ApplyJobStatus.RUNNING
+     where j.id = :id
+       and j.status in (com.example.paymentselection.enums.ApplyJobStatus.PENDING,
+                        com.example.paymentselection.enums.ApplyJobStatus.RUNNING)
+       and (j.owner is null or j.owner = :owner or j.heartbeatAt < :staleBefore)
+  """)
+  int claim(@Param("id") UUID id, @Param("owner") String owner,
+      @Param("now") Instant now, @Param("staleBefore") Instant staleBefore);
+
+  /**
+   * Soma um lote confirmado ao total do job e renova o heartbeat; só tem efeito enquanto {@code owner}
+   * ainda for o dono do job.
+   */
+  @Modifying
+  @Query("""
+    update ApplyJob j
+       set j.rowsAffected = j.rowsAffected + :rows,
+           j.chunks = j.chunks + 1,
+           j.heartbeatAt = :now
+     where j.id = :id and j.owner = :owner
+  """)
+  int progress(@Param("id") UUID id, @Param("owner") String owner, @Param("rows") int rows,
+      @Param("now") Instant now);
+
+  /**
+   * Renova o heartbeat, independentemente dos lotes; só tem efeito enquanto {@code owner} ainda for o dono
+   * do job e ele estiver em execução.
+   */
+  @Modifying
+  @Query("""
+    update ApplyJob j
+       set j.heartbeatAt = :now
+     where j.id = :id and j.owner = :owner
+       and j.status = com.example.paymentselection.enums.ApplyJobStatus.RUNNING
+  """)
+  int heartbeat(@Param("id") UUID id, @Param("owner") String owner, @Param("now") Instant now);
+
+  /**
+   * Encerra o job (concluído ou com falha).
+   */
+  @Modifying
+  @Query("""
+    update ApplyJob j
+       set j.status = :status,
+           j.error = :error,
+           j.finishedAt = :now,
+           j.heartbeatAt = :now
+     where j.id = :id and j.owner = :owner
+  """)
+  int finish(@Param("id") UUID id, @Param("owner") String owner, @Param("status") ApplyJobStatus status,
+      @Param("error") String error, @Param("now") Instant now);
+
+  /**
+   * Busca o job pelo ID, restrito ao usuário que o criou.
+   */
+  Optional<ApplyJob> findByIdAndUserId(UUID id, UUID userId);
+
+  /**
+   * Andamento dos jobs (sem o bitmap de ids), para o progresso em tempo real.
+   */
+  @Query("""
+    select new com.example.paymentselection.repository.projection.ApplyJobProgress(
+             j.id, j.selectionId, j.userId, j.action, j.status, j.rowsAffected, j.estimatedRows,
+             j.chunks, j.partitions, j.createdAt, j.startedAt, j.finishedAt, j.error)
+      from ApplyJob j
+     where j.id in :ids
+  """)
+  List<ApplyJobProgress> findProgress(@Param("ids") Collection<UUID> ids);
+
+  /**
+   * Jobs interrompidos (sem heartbeat recente) que podem ser retomados do último checkpoint.
+   */
+  @Query("""
+    select j.id
+      from ApplyJob j
+     where j.status in (com.example.paymentselection.enums.ApplyJobStatus.PENDING,
+                        com.example.paymentselection.enums.ApplyJobStatus.RUNNING)
+       and j.heartbeatAt < :staleBefore
+     order by j.createdAt
+  """)
+  List<UUID> findResumable(@Param("staleBefore") Instant staleBefore, Pageable pageable);
+
+}
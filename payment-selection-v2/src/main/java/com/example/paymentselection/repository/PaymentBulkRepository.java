@@ -0,0 +1,38 @@
+package com.example.paymentselection.repository;
+
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Consultas e atualizações em lote das seleções, com os conjuntos de IDs enviados como array.
+ */
+public interface PaymentBulkRepository {
+
+  /**
+   * Dentre {@code ids}, retorna os que atendem ao filtro (busca pela chave primária).
+   */
+  List<Long> findIdsMatchingFilter(long[] ids, PaymentFilter filter);
+
+  /**
+   * Marca como pagos os pagamentos a pagar dentre {@code ids} (modo NONE).
+   */
+  int bulkUpdateByIds(Collection<Long> ids);
+
+  /**
+   * Cancela os pagamentos a pagar dentre {@code ids} (modo NONE).
+   */
+  int bulkCancelByIds(Collection<Long> ids);
+
+  /**
+   * Marca como pagos os pagamentos do filtro em {@code (fromId, toId]}, exceto {@code excludedIds}.
+   * Pagamentos já pagos não são regravados.
+   */
+  int bulkUpdateByFilterInRange(PaymentFilter filter, long fromId, long toId, Collection<Long> excludedIds);
+
+  /**
+   * Cancela os pagamentos a pagar do filtro em {@code (fromId, toId]}, exceto {@code excludedIds}.
+   */
+  int bulkCancelByFilterInRange(PaymentFilter filter, long fromId, long toId, Collection<Long> excludedIds);
+
+}
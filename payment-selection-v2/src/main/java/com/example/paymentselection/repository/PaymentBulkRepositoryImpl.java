@@ -0,0 +1,127 @@
+package com.example.paymentselection.repository;
+
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Implementação com os conjuntos de IDs enviados num único parâmetro array ({@code bigint[]}): o texto
+ * do comando é o mesmo para qualquer quantidade de IDs (o plano preparado é reaproveitado) e não há
+ * limite de parâmetros de bind do protocolo (65.535). Os excluídos são desaninhados no servidor
+ * ({@code unnest}) e o PostgreSQL resolve o {@code NOT EXISTS} como anti-join (merge, na faixa de um lote).
+ */
+public class PaymentBulkRepositoryImpl implements PaymentBulkRepository {
+
+  private static final String BY_IDS = """
+      UPDATE payment p
+         SET status = ?, updated_at = CURRENT_TIMESTAMP
+       WHERE p.id = ANY(CAST(? AS BIGINT ARRAY))
+         AND p.status = 'A_PAGAR'""";
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PaymentTableVersion paymentTableVersion;
+
+  @Override
+  public List<Long> findIdsMatchingFilter(long[] ids, PaymentFilter filter) {
+    if (ids.length == 0) {
+      return List.of();
+    }
+
+    StringBuilder sql = new StringBuilder("SELECT p.id FROM payment p WHERE p.id = ANY(CAST(? AS BIGINT ARRAY))");
+    List<Object> args = new ArrayList<>();
+    args.add(ids);
+    appendFilter(sql, args, filter);
+    return jdbcTemplate.query(connection -> prepare(connection, sql.toString(), args),
+        (rs, rowNum) -> rs.getLong(1));
+  }
+
+  @Override
+  public int bulkUpdateByIds(Collection<Long> ids) {
+    return execute(BY_IDS, List.of("PAID", ids));
+  }
+
+  @Override
+  public int bulkCancelByIds(Collection<Long> ids) {
+    return execute(BY_IDS, List.of("CANCELLED", ids));
+  }
+
+  @Override
+  public int bulkUpdateByFilterInRange(PaymentFilter filter, long fromId, long toId, Collection<Long> excludedIds) {
+    return updateInRange("PAID", "p.status <> 'PAID'", filter, fromId, toId, excludedIds);
+  }
+
+  @Override
+  public int bulkCancelByFilterInRange(PaymentFilter filter, long fromId, long toId, Collection<Long> excludedIds) {
+    return updateInRange("CANCELLED", "p.status = 'A_PAGAR'", filter, fromId, toId, excludedIds);
+  }
+
+  private int updateInRange(String newStatus, String changesStatus, PaymentFilter filter, long fromId, long toId,
+      Collection<Long> excludedIds) {
+    StringBuilder sql = new StringBuilder("""
+        UPDATE payment p
+           SET status = ?, updated_at = CURRENT_TIMESTAMP
+         WHERE p.id > ? AND p.id <= ?
+           AND\s""").append(changesStatus);
+    List<Object> args = new ArrayList<>(List.of(newStatus, fromId, toId));
+    appendFilter(sql, args, filter);
+    if (!excludedIds.isEmpty()) {
+      sql.append(" AND NOT EXISTS (SELECT 1 FROM UNNEST(CAST(? AS BIGINT ARRAY)) AS e(id) WHERE e.id = p.id)");
+      args.add(excludedIds);
+    }
+    return execute(sql.toString(), args);
+  }
+
+  /**
+   * Executa o update; parâmetros do tipo {@link Collection} são enviados como um único array.
+   */
+  private int execute(String sql, List<Object> args) {
+    if (args.stream().anyMatch(arg -> arg instanceof Collection<?> ids && ids.isEmpty())) {
+      return 0;
+    }
+
+    int rows = jdbcTemplate.update(connection -> prepare(connection, sql, args));
+
+    // Update fora do JPA: única escrita em pagamentos, registrada aqui
+    paymentTableVersion.markWritten();
+    return rows;
+  }
+
+  private static void appendFilter(StringBuilder sql, List<Object> args, PaymentFilter filter) {
+    if (StringUtils.hasText(filter.status())) {
+      sql.append(" AND p.status = ?");
+      args.add(filter.status());
+    }
+    if (filter.vencimentoAte() != null) {
+      sql.append(" AND p.vencimento <= ?");
+      args.add(filter.vencimentoAte());
+    }
+  }
+
+  /**
+   * Prepara o comando; {@link Collection} e {@code long[]} são enviados como um único array
+   * ({@code bigint[]}, o driver converte o array primitivo sem boxing).
+   */
+  private static PreparedStatement prepare(Connection connection, String sql, List<Object> args)
+      throws SQLException {
+    PreparedStatement statement = connection.prepareStatement(sql);
+    for (int i = 0; i < args.size(); i++) {
+      if (args.get(i) instanceof Collection<?> ids) {
+        statement.setArray(i + 1, connection.createArrayOf("bigint", ids.toArray()));
+      } else {
+        statement.setObject(i + 1, args.get(i));
+      }
+    }
+    return statement;
+  }
+
+}
@@ -0,0 +1,23 @@
+package com.example.paymentselection.repository;
+
+import com.example.paymentselection.dto.PaymentSummary;
+import com.example.paymentselection.repository.spec.PaymentCursor;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import java.util.List;
+
+/**
+ * Consultas paginadas por cursor (keyset) sobre {@code (vencimento, id)}, sem OFFSET.
+ */
+public interface PaymentKeysetRepository {
+
+  /**
+   * Até {@code limit} pagamentos posteriores ao cursor, em ordem crescente (cursor nulo: do início).
+   */
+  List<PaymentSummary> findAfter(PaymentFilter filter, PaymentCursor cursor, int limit);
+
+  /**
+   * Até {@code limit} pagamentos anteriores ao cursor, em ordem decrescente (cursor nulo: do fim).
+   */
+  List<PaymentSummary> findBefore(PaymentFilter filter, PaymentCursor cursor, int limit);
+
+}
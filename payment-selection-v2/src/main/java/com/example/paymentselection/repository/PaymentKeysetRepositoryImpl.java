@@ -0,0 +1,129 @@
+package com.example.paymentselection.repository;
+
+import com.example.paymentselection.dto.PaymentSummary;
+import com.example.paymentselection.repository.spec.PaymentCursor;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.util.StringUtils;
+
+/**
+ * Implementação das consultas por cursor.
+ *
+ * <p>A ordenação é {@code vencimento, id} com os pagamentos sem vencimento no fim. Cada trecho
+ * (com e sem vencimento) é lido por uma consulta própria, para que a condição do cursor seja uma
+ * comparação de tupla simples, resolvida pelos índices {@code (status, vencimento, id)} e
+ * {@code (vencimento, id)} sem percorrer as linhas das páginas anteriores. Os pagamentos em aberto
+ * ({@code A_PAGAR}) usam o índice parcial {@code idx_payment_a_pagar_vencimento_id}.
+ */
+public class PaymentKeysetRepositoryImpl implements PaymentKeysetRepository {
+
+  /**
+   * Vai no SQL como literal: o índice parcial só serve a comandos em que o status é conhecido no
+   * planejamento, inclusive nos planos genéricos dos comandos preparados.
+   */
+  private static final String OPEN_STATUS = "A_PAGAR";
+
+  private static final String SELECT = """
+      select new com.example.paymentselection.dto.PaymentSummary(
+             p.id, p.status, p.vencimento, p.valor, p.descricao, p.createdAt, p.updatedAt)
+        from Payment p""";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public List<PaymentSummary> findAfter(PaymentFilter filter, PaymentCursor cursor, int limit) {
+    List<PaymentSummary> payments = new ArrayList<>(limit);
+    if (cursor == null || cursor.vencimento() != null) {
+      payments.addAll(findDated(filter, cursor, true, limit));
+    }
+    if (payments.size() < limit && filter.vencimentoAte() == null) {
+      payments.addAll(findUndated(filter, cursor, true, limit - payments.size()));
+    }
+    return payments;
+  }
+
+  @Override
+  public List<PaymentSummary> findBefore(PaymentFilter filter, PaymentCursor cursor, int limit) {
+    List<PaymentSummary> payments = new ArrayList<>(limit);
+    if ((cursor == null || cursor.vencimento() == null) && filter.vencimentoAte() == null) {
+      payments.addAll(findUndated(filter, cursor, false, limit));
+    }
+    if (payments.size() < limit) {
+      payments.addAll(findDated(filter, cursor, false, limit - payments.size()));
+    }
+    return payments;
+  }
+
+  /**
+   * Trecho com vencimento: {@code (vencimento, id)} maior/menor que o cursor.
+   */
+  private List<PaymentSummary> findDated(PaymentFilter filter, PaymentCursor cursor, boolean forward, int limit) {
+    boolean seek = cursor != null && cursor.vencimento() != null;
+
+    StringBuilder jpql = new StringBuilder(SELECT).append(" where p.vencimento is not null");
+    appendFilter(jpql, filter);
+    if (seek) {
+      jpql.append(forward
+          ? " and (p.vencimento, p.id) > (:cursorVencimento, :cursorId)"
+          : " and (p.vencimento, p.id) < (:cursorVencimento, :cursorId)");
+    }
+    jpql.append(forward ? " order by p.vencimento asc, p.id asc" : " order by p.vencimento desc, p.id desc");
+
+    TypedQuery<PaymentSummary> query = createQuery(jpql, filter, limit);
+    if (seek) {
+      query.setParameter("cursorVencimento", cursor.vencimento());
+      query.setParameter("cursorId", cursor.id());
+    }
+    return query.getResultList();
+  }
+
+  /**
+   * Trecho sem vencimento: apenas {@code id} maior/menor que o cursor.
+   */
+  private List<PaymentSummary> findUndated(PaymentFilter filter, PaymentCursor cursor, boolean forward, int limit) {
+    boolean seek = cursor != null && cursor.vencimento() == null;
+
+    StringBuilder jpql = new StringBuilder(SELECT).append(" where p.vencimento is null");
+    appendFilter(jpql, filter);
+    if (seek) {
+      jpql.append(forward ? " and p.id > :cursorId" : " and p.id < :cursorId");
+    }
+    jpql.append(forward ? " order by p.id asc" : " order by p.id desc");
+
+    TypedQuery<PaymentSummary> query = createQuery(jpql, filter, limit);
+    if (seek) {
+      query.setParameter("cursorId", cursor.id());
+    }
+    return query.getResultList();
+  }
+
+  private static void appendFilter(StringBuilder jpql, PaymentFilter filter) {
+    // Só entram no SQL os filtros informados, para que o plano use o índice adequado
+    if (OPEN_STATUS.equals(filter.status())) {
+      jpql.append(" and p.status = '").append(OPEN_STATUS).append("'");
+    } else if (StringUtils.hasText(filter.status())) {
+      jpql.append(" and p.status = :status");
+    }
+    if (filter.vencimentoAte() != null) {
+      jpql.append(" and p.vencimento <= :vencimentoAte");
+    }
+  }
+
+  private TypedQuery<PaymentSummary> createQuery(StringBuilder jpql, PaymentFilter filter, int limit) {
+    TypedQuery<PaymentSummary> query = entityManager.createQuery(jpql.toString(), PaymentSummary.class)
+        .setMaxResults(limit);
+    if (StringUtils.hasText(filter.status()) && !OPEN_STATUS.equals(filter.status())) {
+      query.setParameter("status", filter.status());
+    }
+    if (filter.vencimentoAte() != null) {
+      query.setParameter("vencimentoAte", filter.vencimentoAte());
+    }
+    return query;
+  }
+
+}
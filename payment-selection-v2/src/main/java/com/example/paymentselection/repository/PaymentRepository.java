@@ -1,81 +1,62 @@
 package com.example.paymentselection.repository;
 
+import com.example.paymentselection.dto.PaymentSummary;
 import com.example.paymentselection.entity.Payment;
 import java.time.LocalDate;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long>, JpaSpecificationExecutor<Payment> {
-
-  // (opcionais, você pode manter)
-  Page<Payment> findByStatus(String status, Pageable pageable);
-  Page<Payment> findByVencimentoLessThanEqual(LocalDate vencimento, Pageable pageable);
-  Page<Payment> findByStatusAndVencimentoLessThanEqual(String status, LocalDate vencimento, Pageable pageable);
-
-  // --------- BULK PAY (status -> PAID) ---------
-
-  @Modifying
-  @Query("""
-    update Payment p
-       set p.status = 'PAID', p.updatedAt = CURRENT_TIMESTAMP
-     where (:status is null or p.status = :status)
-       and (:vencimentoAte is null or p.vencimento <= :vencimentoAte)
+public interface PaymentRepository extends JpaRepository<Payment, Long>, JpaSpecificationExecutor<Payment>,
+    PaymentKeysetRepository, PaymentStatisticsRepository, PaymentBulkRepository {
+
+  // Buscas projetadas em PaymentSummary (select new ...): sem entidades gerenciadas nem snapshots
+  Page<PaymentSummary> findBy(Pageable pageable);
+  Page<PaymentSummary> findByStatus(String status, Pageable pageable);
+  Page<PaymentSummary> findByVencimentoLessThanEqual(LocalDate vencimento, Pageable pageable);
+  Page<PaymentSummary> findByStatusAndVencimentoLessThanEqual(String status, LocalDate vencimento, Pageable pageable);
+
+  // Variantes sem COUNT: buscam uma linha a mais para saber se há próxima página
+  Slice<PaymentSummary> findSliceBy(Pageable pageable);
+  Slice<PaymentSummary> findSliceByStatus(String status, Pageable pageable);
+  Slice<PaymentSummary> findSliceByVencimentoLessThanEqual(LocalDate vencimento, Pageable pageable);
+  Slice<PaymentSummary> findSliceByStatusAndVencimentoLessThanEqual(String status, LocalDate vencimento, Pageable pageable);
+
+  /**
+   * Último id dos próximos {@code size} pagamentos do filtro em {@code (afterId, maxId]}, por keyset (sem
+   * OFFSET), para delimitar os lotes da aplicação em lote; nulo se restam menos de {@code size}.
+   */
+  @Query(nativeQuery = true, value = """
+    SELECT CASE WHEN count(*) = :size THEN max(chunk.id) END
+      FROM (SELECT p.id
+              FROM payment p
+             WHERE p.id > :afterId AND p.id <= :maxId
+               AND (CAST(:status AS VARCHAR) IS NULL OR p.status = CAST(:status AS VARCHAR))
+               AND (CAST(:vencimentoAte AS DATE) IS NULL OR p.vencimento <= CAST(:vencimentoAte AS DATE))
+             ORDER BY p.id
+             LIMIT :size) chunk
   """)
-  void bulkUpdateByFilter(@Param("status") String status,
-      @Param("vencimentoAte") LocalDate vencimentoAte);
+  Long findChunkEnd(@Param("afterId") long afterId, @Param("maxId") long maxId,
+      @Param("status") String status, @Param("vencimentoAte") LocalDate vencimentoAte, @Param("size") int size);
 
-  @Modifying
+  /**
+   * IDs de uma página da busca ({@code /api/payments/search}, em ordem de id), sem a consulta de contagem.
+   */
   @Query("""
-    update Payment p
-       set p.status = 'PAID', p.updatedAt = CURRENT_TIMESTAMP
+    select p.id
+      from Payment p
      where (:status is null or p.status = :status)
-       and (:vencimentoAte is null or p.vencimento <= :vencimentoAte)
-       and p.id not in :excludedIds
+       and (cast(:vencimentoAte as LocalDate) is null or p.vencimento <= :vencimentoAte)
+     order by p.id
   """)
-  int bulkUpdateByFilterExcluding(@Param("status") String status,
-      @Param("vencimentoAte") LocalDate vencimentoAte,
-      @Param("excludedIds") List<Long> excludedIds);
-
-  @Modifying
-  @Query("""
-    update Payment p
-       set p.status = 'PAID', p.updatedAt = CURRENT_TIMESTAMP
-     where p.id in :ids and p.status = 'A_PAGAR'
-  """)
-  void bulkUpdateByIds(@Param("ids") List<Long> ids);
-
-  // --------- BULK CANCEL (status -> CANCELLED) ---------
+  List<Long> findIdsPage(@Param("status") String status, @Param("vencimentoAte") LocalDate vencimentoAte,
+      Pageable pageable);
 
-  @Modifying
-  @Query("""
-    update Payment p
-       set p.status = 'CANCELLED', p.updatedAt = CURRENT_TIMESTAMP
-     where (:vencimentoAte is null or p.vencimento <= :vencimentoAte)
-       and p.status = 'A_PAGAR'
-  """)
-  void bulkCancelByFilter(@Param("vencimentoAte") LocalDate vencimentoAte);
-
-  @Modifying
-  @Query("""
-    update Payment p
-       set p.status = 'CANCELLED', p.updatedAt = CURRENT_TIMESTAMP
-     where (:vencimentoAte is null or p.vencimento <= :vencimentoAte)
-       and p.status = 'A_PAGAR'
-       and p.id not in :excludedIds
-  """)
-  int bulkCancelByFilterExcluding(@Param("vencimentoAte") LocalDate vencimentoAte,
-      @Param("excludedIds") List<Long> excludedIds);
-
-  @Modifying
-  @Query("""
-    update Payment p
-       set p.status = 'CANCELLED', p.updatedAt = CURRENT_TIMESTAMP
-     where p.id in :ids and p.status = 'A_PAGAR'
-  """)
-  int bulkCancelByIds(@Param("ids") List<Long> ids);
+  @Query("select coalesce(max(p.id), 0) from Payment p")
+  long findMaxId();
 }
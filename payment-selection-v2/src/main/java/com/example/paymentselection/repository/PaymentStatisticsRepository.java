@@ -0,0 +1,17 @@
+package com.example.paymentselection.repository;
+
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import java.util.OptionalLong;
+
+/**
+ * Estatísticas aproximadas da tabela de pagamentos, obtidas sem percorrer as linhas.
+ */
+public interface PaymentStatisticsRepository {
+
+  /**
+   * Estimativa do planejador do PostgreSQL para a quantidade de pagamentos que atendem ao filtro;
+   * vazia se o banco não oferecer a estimativa.
+   */
+  OptionalLong estimateCount(PaymentFilter filter);
+
+}
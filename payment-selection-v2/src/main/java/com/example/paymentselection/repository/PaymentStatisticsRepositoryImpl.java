@@ -0,0 +1,49 @@
+package com.example.paymentselection.repository;
+
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import com.example.paymentselection.util.JsonUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Implementação das estimativas via {@code EXPLAIN (FORMAT JSON)}: o planejador usa apenas as
+ * estatísticas da tabela ({@code ANALYZE}), então o custo não depende de quantas linhas o filtro alcança.
+ */
+@Slf4j
+public class PaymentStatisticsRepositoryImpl implements PaymentStatisticsRepository {
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Override
+  public OptionalLong estimateCount(PaymentFilter filter) {
+    StringBuilder sql = new StringBuilder("EXPLAIN (FORMAT JSON) SELECT 1 FROM payment WHERE 1 = 1");
+    List<Object> args = new ArrayList<>();
+    if (StringUtils.hasText(filter.status())) {
+      sql.append(" AND status = ?");
+      args.add(filter.status());
+    }
+    if (filter.vencimentoAte() != null) {
+      sql.append(" AND vencimento <= ?");
+      args.add(filter.vencimentoAte());
+    }
+
+    try {
+      String plan = jdbcTemplate.queryForObject(sql.toString(), String.class, args.toArray());
+      JsonNode rows = JsonUtils.readTree(plan).path(0).path("Plan").path("Plan Rows");
+      return rows.isNumber() ? OptionalLong.of(rows.asLong()) : OptionalLong.empty();
+    } catch (DataAccessException e) {
+      // Banco sem EXPLAIN (FORMAT JSON), por exemplo o H2 dos testes
+      log.debug("Estimativa de contagem indisponível: {}", e.getMessage());
+      return OptionalLong.empty();
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+package com.example.paymentselection.repository;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Versão de mutação da tabela payment neste nó: muda a cada escrita confirmada em pagamentos.
+ * Usada para invalidar resultados em cache que dependem do conteúdo da tabela (ex.: contagens).
+ *
+ * <p>A aplicação só escreve em pagamentos pelos updates em lote JDBC do {@link PaymentBulkRepositoryImpl},
+ * que chamam {@link #markWritten()} diretamente; o {@code PaymentWriteListener} cobre eventuais escritas
+ * por entidade JPA.
+ */
+@Component
+public class PaymentTableVersion {
+
+  private final AtomicLong version = new AtomicLong();
+
+  private volatile Instant writtenAt;
+
+  public long current() {
+    return version.get();
+  }
+
+  /**
+   * Quando a última escrita foi confirmada ({@code null} se nenhuma neste nó).
+   */
+  public Instant writtenAt() {
+    return writtenAt;
+  }
+
+  /**
+   * Registra uma escrita em pagamentos. A versão só avança após o commit, para que uma leitura
+   * concorrente nunca associe à versão nova um resultado calculado antes da escrita ser visível.
+   */
+  public void markWritten() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      advance();
+      return;
+    }
+    if (TransactionSynchronizationManager.hasResource(this)) {
+      // Já registrado nesta transação
+      return;
+    }
+
+    TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        advance();
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(PaymentTableVersion.this);
+      }
+    });
+  }
+
+  private void advance() {
+    writtenAt = Instant.now();
+    version.incrementAndGet();
+  }
+
+}
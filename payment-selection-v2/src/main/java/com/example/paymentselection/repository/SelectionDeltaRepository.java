@@ -0,0 +1,45 @@
+package com.example.paymentselection.repository;
+
+import com.example.paymentselection.entity.SelectionDelta;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositório para o log de deltas das seleções.
+ */
+@Repository
+public interface SelectionDeltaRepository extends JpaRepository<SelectionDelta, Long> {
+
+  /**
+   * Busca os deltas pendentes de uma seleção na ordem em que foram gravados.
+   */
+  List<SelectionDelta> findBySelectionIdOrderByVersionAscIdAsc(UUID selectionId);
+
+  /**
+   * Seleções com pelo menos {@code threshold} deltas pendentes de compactação.
+   */
+  @Query("""
+    select d.selectionId
+      from SelectionDelta d
+     group by d.selectionId
+    having count(d) >= :threshold
+  """)
+  List<UUID> findSelectionIdsToCompact(@Param("threshold") long threshold, Pageable pageable);
+
+  /**
+   * Remove os deltas já incorporados ao snapshot.
+   */
+  @Modifying
+  @Query("delete from SelectionDelta d where d.selectionId = :selectionId and d.version <= :version")
+  int deleteUpToVersion(@Param("selectionId") UUID selectionId, @Param("version") Integer version);
+
+  @Modifying
+  @Query("delete from SelectionDelta d where d.selectionId = :selectionId")
+  int deleteBySelectionId(@Param("selectionId") UUID selectionId);
+}
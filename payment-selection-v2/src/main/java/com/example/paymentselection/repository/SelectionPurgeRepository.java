@@ -0,0 +1,16 @@
+package com.example.paymentselection.repository;
+
+import java.time.Instant;
+
+/**
+ * Remoção em lote das seleções expiradas.
+ */
+public interface SelectionPurgeRepository {
+
+  /**
+   * Remove até {@code limit} seleções expiradas antes de {@code expiredBefore}, com os seus deltas,
+   * ignorando as que estão bloqueadas por outra transação. Retorna quantas seleções foram removidas.
+   */
+  int deleteExpired(Instant expiredBefore, int limit);
+
+}
@@ -0,0 +1,41 @@
+package com.example.paymentselection.repository;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Implementação com um único comando: o lote é escolhido pelo índice {@code (expires_at)} com
+ * {@code FOR UPDATE SKIP LOCKED}, então vários nós removem lotes disjuntos sem esperar uns pelos outros
+ * nem pelas seleções em uso (bloqueadas por um PATCH ou apply em andamento, que ficam para a próxima vez).
+ */
+public class SelectionPurgeRepositoryImpl implements SelectionPurgeRepository {
+
+  private static final String DELETE_EXPIRED = """
+      WITH expired AS (
+             SELECT id
+               FROM selection
+              WHERE expires_at < ?
+              ORDER BY expires_at
+              LIMIT ?
+                FOR UPDATE SKIP LOCKED
+           ),
+           deltas AS (
+             DELETE FROM selection_delta d
+              USING expired e
+              WHERE d.selection_id = e.id
+           )
+      DELETE FROM selection s
+       USING expired e
+       WHERE s.id = e.id""";
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Override
+  public int deleteExpired(Instant expiredBefore, int limit) {
+    return jdbcTemplate.update(DELETE_EXPIRED, expiredBefore.atOffset(ZoneOffset.UTC), limit);
+  }
+
+}
@@ -1,9 +1,17 @@
 package com.example.paymentselection.repository;
 
 import com.example.paymentselection.entity.Selection;
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.repository.projection.ModeCount;
+import com.example.paymentselection.repository.projection.SelectionSnapshot;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,11 +19,91 @@ import java.util.UUID;
  * Repositório para operações com a entidade Selection.
  */
 @Repository
-public interface SelectionRepository extends JpaRepository<Selection, UUID> {
+public interface SelectionRepository extends JpaRepository<Selection, UUID>, SelectionPurgeRepository {
 
     /**
      * Busca uma seleção por ID e ID do usuário.
      */
     Optional<Selection> findByIdAndUserId(UUID id, UUID userId);
-}
 
+    /**
+     * Lê o snapshot atual direto do banco (sem passar pelo contexto de persistência).
+     */
+    @Query("""
+        select new com.example.paymentselection.repository.projection.SelectionSnapshot(
+               s.mode, s.includeBitmap, s.excludeBitmap, s.includeIds, s.excludeIds, s.snapshotVersion)
+          from Selection s
+         where s.id = :id
+    """)
+    Optional<SelectionSnapshot> findSnapshotById(@Param("id") UUID id);
+
+    /**
+     * Incrementa a versão se ela ainda for a esperada (controle otimista sem regravar a linha).
+     */
+    @Modifying
+    @Query("update Selection s set s.version = s.version + 1 where s.id = :id and s.version = :version")
+    int incrementVersion(@Param("id") UUID id, @Param("version") Integer version);
+
+    /**
+     * Incrementa a versão e grava a nova contagem de selecionados, se a versão ainda for a esperada.
+     */
+    @Modifying
+    @Query("""
+        update Selection s
+           set s.version = s.version + 1,
+               s.selectedCount = :selectedCount
+         where s.id = :id and s.version = :version
+    """)
+    int incrementVersion(@Param("id") UUID id, @Param("version") Integer version,
+        @Param("selectedCount") long selectedCount);
+
+    /**
+     * Remove a seleção sem carregá-la.
+     */
+    @Modifying
+    @Query("delete from Selection s where s.id = :id")
+    int deleteSelectionById(@Param("id") UUID id);
+
+    /**
+     * Troca o modo e reinicia o snapshot com conjuntos vazios, se a versão ainda for a esperada.
+     * O snapshot fica na versão anterior, para que os deltas gravados na nova versão continuem pendentes.
+     */
+    @Modifying
+    @Query("""
+        update Selection s
+           set s.mode = :mode,
+               s.includeBitmap = :empty,
+               s.excludeBitmap = :empty,
+               s.selectedCount = :selectedCount,
+               s.snapshotVersion = s.version,
+               s.version = s.version + 1
+         where s.id = :id and s.version = :version
+    """)
+    int resetSnapshot(@Param("id") UUID id, @Param("version") Integer version,
+        @Param("mode") Mode mode, @Param("empty") byte[] empty, @Param("selectedCount") long selectedCount);
+
+    /**
+     * Grava o snapshot compactado, desde que nenhum snapshot mais novo já tenha sido gravado.
+     */
+    @Modifying
+    @Query("""
+        update Selection s
+           set s.includeBitmap = :includeBitmap,
+               s.excludeBitmap = :excludeBitmap,
+               s.snapshotVersion = :snapshotVersion
+         where s.id = :id and s.snapshotVersion < :snapshotVersion
+    """)
+    int writeSnapshot(@Param("id") UUID id, @Param("includeBitmap") byte[] includeBitmap,
+        @Param("excludeBitmap") byte[] excludeBitmap, @Param("snapshotVersion") Integer snapshotVersion);
+
+    /**
+     * Seleções ainda não expiradas, por modo.
+     */
+    @Query("""
+        select new com.example.paymentselection.repository.projection.ModeCount(s.mode, count(s))
+          from Selection s
+         where s.expiresAt > :now
+         group by s.mode
+    """)
+    List<ModeCount> countLiveByMode(@Param("now") Instant now);
+}
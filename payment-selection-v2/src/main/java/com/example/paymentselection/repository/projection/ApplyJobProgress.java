@@ -0,0 +1,25 @@
+package com.example.paymentselection.repository.projection;
+
+import com.example.paymentselection.enums.Action;
+import com.example.paymentselection.enums.ApplyJobStatus;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Andamento de um job de aplicação em lote, sem o bitmap de ids.
+ */
+public record ApplyJobProgress(
+    UUID id,
+    UUID selectionId,
+    UUID userId,
+    Action action,
+    ApplyJobStatus status,
+    long rowsAffected,
+    Long estimatedRows,
+    int chunks,
+    int partitions,
+    Instant createdAt,
+    Instant startedAt,
+    Instant finishedAt,
+    String error
+) {}
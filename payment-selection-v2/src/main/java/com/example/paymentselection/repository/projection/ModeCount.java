@@ -0,0 +1,11 @@
+package com.example.paymentselection.repository.projection;
+
+import com.example.paymentselection.enums.Mode;
+
+/**
+ * Quantidade de seleções de um modo.
+ */
+public record ModeCount(
+    Mode mode,
+    long count
+) {}
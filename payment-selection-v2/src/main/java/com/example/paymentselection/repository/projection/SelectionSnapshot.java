@@ -0,0 +1,15 @@
+package com.example.paymentselection.repository.projection;
+
+import com.example.paymentselection.enums.Mode;
+
+/**
+ * Projeção do snapshot compactado de uma seleção (modo e conjuntos até {@code snapshotVersion}).
+ */
+public record SelectionSnapshot(
+    Mode mode,
+    byte[] includeBitmap,
+    byte[] excludeBitmap,
+    String includeIds,
+    String excludeIds,
+    Integer snapshotVersion
+) {}
@@ -0,0 +1,41 @@
+package com.example.paymentselection.repository.spec;
+
+import com.example.paymentselection.dto.PaymentSummary;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Posição na ordenação por {@code (vencimento, id)} usada na paginação por cursor (keyset).
+ * Pagamentos sem vencimento ficam no fim da ordenação. O token enviado ao cliente é opaco.
+ */
+public record PaymentCursor(LocalDate vencimento, long id) {
+
+  public static PaymentCursor of(PaymentSummary payment) {
+    return new PaymentCursor(payment.vencimento(), payment.id());
+  }
+
+  /**
+   * Codifica o cursor como token opaco (Base64 URL-safe).
+   */
+  public String encode() {
+    String raw = (vencimento != null ? vencimento.toString() : "") + ":" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodifica um token gerado por {@link #encode()}.
+   */
+  public static PaymentCursor decode(String token) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int separator = raw.lastIndexOf(':');
+      String vencimento = raw.substring(0, separator);
+      return new PaymentCursor(vencimento.isEmpty() ? null : LocalDate.parse(vencimento),
+          Long.parseLong(raw.substring(separator + 1)));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Cursor inválido", e);
+    }
+  }
+
+}
@@ -0,0 +1,51 @@
+package com.example.paymentselection.repository.spec;
+
+import static com.example.paymentselection.repository.spec.PaymentSpecifications.statusEquals;
+import static com.example.paymentselection.repository.spec.PaymentSpecifications.vencimentoLte;
+
+import com.example.paymentselection.entity.Payment;
+import java.time.LocalDate;
+import java.util.Map;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Filtro normalizado de pagamentos (status sem espaços/vazio como nulo, data já convertida).
+ * Por ser um record, também serve de chave para caches por filtro.
+ */
+public record PaymentFilter(String status, LocalDate vencimentoAte) {
+
+  /**
+   * Converte o filtro gravado na seleção ({@code filter_json}).
+   */
+  public static PaymentFilter of(Map<String, Object> filter) {
+    return new PaymentFilter(asText(filter.get("status")), asLocalDate(filter.get("vencimentoAte")));
+  }
+
+  /**
+   * Normaliza os parâmetros de busca recebidos na API.
+   */
+  public static PaymentFilter of(String status, LocalDate vencimentoAte) {
+    return new PaymentFilter(asText(status), vencimentoAte);
+  }
+
+  public Specification<Payment> toSpecification() {
+    return Specification
+        .where(statusEquals(status))
+        .and(vencimentoLte(vencimentoAte));
+  }
+
+  private static String asText(Object v) {
+    if (v instanceof String s) {
+      s = s.trim();
+      return s.isEmpty() ? null : s;
+    }
+    return null;
+  }
+
+  private static LocalDate asLocalDate(Object v) {
+    if (v == null) return null;
+    String s = v.toString().trim();
+    return s.isEmpty() ? null : LocalDate.parse(s); // espere "yyyy-MM-dd"
+  }
+
+}
@@ -0,0 +1,306 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.dto.ApplyJobResponse;
+import com.example.paymentselection.repository.ApplyJobRepository;
+import com.example.paymentselection.repository.projection.ApplyJobProgress;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Progresso dos jobs de aplicação em lote por Server-Sent Events ({@code GET /apply-jobs/{id}/events}).
+ *
+ * <p>Um assinante não ocupa thread: a requisição fica em modo assíncrono do servlet e custa só a conexão
+ * e um {@link SseEmitter} registrado aqui. A cada {@code selection.apply.events.interval}, uma única consulta
+ * lê o andamento de todos os jobs com assinantes neste nó (executados aqui ou em outro nó), e o evento
+ * {@code progress} só é enviado quando o job avançou; parado, o stream recebe um comentário a cada
+ * {@code heartbeat-interval}, para proxies não fecharem a conexão. Ao terminar o job, o último evento é
+ * enviado e o stream é encerrado; se o job deixou de existir, o stream é encerrado sem evento.
+ */
+@Slf4j
+@Service
+public class ApplyJobProgressPublisher {
+
+  static final String EVENT = "progress";
+
+  @Autowired
+  private ApplyJobRepository applyJobRepository;
+
+  @Autowired
+  private SelectionMetrics selectionMetrics;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${selection.apply.events.timeout:PT30M}")
+  private Duration timeout = Duration.ofMinutes(30);
+
+  @Value("${selection.apply.events.heartbeat-interval:PT15S}")
+  private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+  /**
+   * Envia os eventos fora da thread do agendador, para um cliente lento não atrasar os demais.
+   */
+  private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final Map<UUID, Subscribers> subscribers = new ConcurrentHashMap<>();
+
+  private final AtomicInteger subscriberCount = new AtomicInteger();
+
+  /**
+   * Assinantes de um job e o último andamento enviado a eles.
+   */
+  private static final class Subscribers {
+
+    private final Set<Subscriber> emitters = ConcurrentHashMap.newKeySet();
+
+    private volatile ApplyJobProgress last;
+
+    private volatile Instant lastSentAt;
+
+  }
+
+  /**
+   * Um stream aberto. Os envios a ele são encadeados: um evento só sai depois do anterior, então dois ciclos
+   * seguidos não chegam fora de ordem, e nada sai depois do evento final.
+   */
+  private final class Subscriber {
+
+    private final UUID jobId;
+
+    private final SseEmitter emitter;
+
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+
+    private boolean closed;
+
+    private Subscriber(UUID jobId, SseEmitter emitter) {
+      this.jobId = jobId;
+      this.emitter = emitter;
+    }
+
+    synchronized void send(Set<DataWithMediaType> event, boolean last) {
+      if (closed) {
+        return;
+      }
+      closed = last;
+      pending = pending.thenRunAsync(() -> {
+        if (!ApplyJobProgressPublisher.this.send(emitter, event)) {
+          remove(this);
+        } else if (last) {
+          emitter.complete();
+        }
+      }, sender);
+    }
+
+  }
+
+  @PostConstruct
+  void registerMetrics() {
+    selectionMetrics.progressSubscribers(subscriberCount::get);
+  }
+
+  /**
+   * Abre o stream do job, restrito ao usuário que o criou, já com o andamento atual; se o job já terminou,
+   * o stream é encerrado em seguida. Para um job já acompanhado neste nó, usa o último andamento lido, sem
+   * ir ao banco (reconexões em massa custam uma consulta por job, não por assinante).
+   */
+  public Optional<SseEmitter> subscribe(UUID jobId, UUID userId) {
+    Subscribers watched = subscribers.get(jobId);
+    ApplyJobProgress current = watched != null ? watched.last : null;
+    if (current == null) {
+      current = applyJobRepository.findProgress(List.of(jobId)).stream().findFirst().orElse(null);
+    }
+    if (current == null || !current.userId().equals(userId)) {
+      return Optional.empty();
+    }
+
+    SseEmitter emitter = new SseEmitter(timeout.toMillis());
+    ApplyJobResponse response = ApplyJobResponse.of(current, Instant.now());
+    if (current.status().finished()) {
+      send(emitter, progress(response));
+      emitter.complete();
+      return Optional.of(emitter);
+    }
+
+    ApplyJobProgress initial = current;
+    Subscriber subscriber = new Subscriber(jobId, emitter);
+    // Na fila do assinante, antes de qualquer evento do agendador; se a requisição ainda não entrou em modo
+    // assíncrono, o evento fica guardado e sai junto com a resposta
+    subscriber.send(progress(response), false);
+    subscribers.compute(jobId, (id, job) -> {
+      Subscribers result = job != null ? job : new Subscribers();
+      if (result.last == null) {
+        result.last = initial;
+        result.lastSentAt = Instant.now();
+      }
+      if (result.emitters.add(subscriber)) {
+        subscriberCount.incrementAndGet();
+      }
+      return result;
+    });
+    emitter.onCompletion(() -> remove(subscriber));
+    emitter.onTimeout(() -> remove(subscriber));
+    emitter.onError(e -> remove(subscriber));
+    return Optional.of(emitter);
+  }
+
+  /**
+   * Consulta o andamento dos jobs com assinantes e envia a quem acompanha cada um.
+   */
+  @Scheduled(fixedDelayString = "${selection.apply.events.interval:PT1S}")
+  public void publish() {
+    if (subscribers.isEmpty()) {
+      return;
+    }
+
+    List<UUID> jobIds = List.copyOf(subscribers.keySet());
+    List<ApplyJobProgress> jobs;
+    try {
+      jobs = applyJobRepository.findProgress(jobIds);
+    } catch (DataAccessException e) {
+      log.warn("Falha ao consultar o andamento dos jobs; nova tentativa na próxima execução", e);
+      return;
+    }
+
+    // Jobs removidos do banco: os streams são encerrados em vez de ficarem abertos até o timeout
+    Set<UUID> found = jobs.stream().map(ApplyJobProgress::id).collect(Collectors.toSet());
+    for (UUID jobId : jobIds) {
+      if (!found.contains(jobId)) {
+        Subscribers job = subscribers.get(jobId);
+        if (job != null) {
+          broadcast(job, null, true);
+        }
+      }
+    }
+
+    Instant now = Instant.now();
+    for (ApplyJobProgress progress : jobs) {
+      Subscribers job = subscribers.get(progress.id());
+      if (job == null) {
+        continue;
+      }
+
+      if (advanced(job.last, progress)) {
+        job.last = progress;
+        job.lastSentAt = now;
+        broadcast(job, progress(ApplyJobResponse.of(progress, now)), progress.status().finished());
+      } else if (job.lastSentAt == null || !now.isBefore(job.lastSentAt.plus(heartbeatInterval))) {
+        job.lastSentAt = now;
+        broadcast(job, SseEmitter.event().comment("heartbeat").build(), false);
+      }
+    }
+  }
+
+  /**
+   * Encerra os streams antes do desligamento gracioso, que do contrário esperaria por eles; o
+   * {@code EventSource} do navegador reconecta sozinho (em outro nó, atrás do balanceador).
+   */
+  @EventListener(ContextClosedEvent.class)
+  public void closeAll() {
+    subscribers.forEach((jobId, job) -> job.emitters.forEach(subscriber -> subscriber.emitter.complete()));
+    subscribers.clear();
+    subscriberCount.set(0);
+  }
+
+  /**
+   * Encerra os streams que restarem e o executor dos envios, sem esperar por clientes lentos.
+   */
+  @PreDestroy
+  void shutdown() {
+    closeAll();
+    sender.shutdownNow();
+  }
+
+  /**
+   * Assinantes ativos neste nó.
+   */
+  public int subscribers() {
+    return subscriberCount.get();
+  }
+
+  /**
+   * Envia o evento, montado (e serializado) uma única vez, a todos os assinantes do job; com {@code last},
+   * encerra os streams em seguida (sem evento, se {@code event} for nulo).
+   */
+  private void broadcast(Subscribers job, Set<DataWithMediaType> event, boolean last) {
+    for (Subscriber subscriber : job.emitters) {
+      subscriber.send(event, last);
+      if (last) {
+        // O onCompletion só roda depois que o container fecha a requisição
+        remove(subscriber);
+      }
+    }
+  }
+
+  private boolean send(SseEmitter emitter, Set<DataWithMediaType> event) {
+    if (event == null) {
+      return true;
+    }
+    try {
+      emitter.send(event);
+      return true;
+    } catch (IOException | IllegalStateException e) {
+      // Cliente desconectado ou stream já encerrado (timeout); o container encerra a requisição
+      log.debug("Falha ao enviar o progresso: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private void remove(Subscriber subscriber) {
+    subscribers.computeIfPresent(subscriber.jobId, (id, job) -> {
+      if (job.emitters.remove(subscriber)) {
+        subscriberCount.decrementAndGet();
+      }
+      return job.emitters.isEmpty() ? null : job;
+    });
+  }
+
+  private Set<DataWithMediaType> progress(ApplyJobResponse response) {
+    String json;
+    try {
+      json = objectMapper.writeValueAsString(response);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Falha ao serializar o progresso do job", e);
+    }
+    return SseEmitter.event()
+        .name(EVENT)
+        .id(Long.toString(response.rowsProcessed()))
+        .data(json, MediaType.APPLICATION_JSON)
+        .build();
+  }
+
+  /**
+   * O job processou mais lotes ou mudou de situação desde o último evento.
+   */
+  private static boolean advanced(ApplyJobProgress last, ApplyJobProgress current) {
+    return last == null || last.chunks() != current.chunks() || last.status() != current.status();
+  }
+
+}
@@ -0,0 +1,565 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.config.ReadYourWrites;
+import com.example.paymentselection.dto.ApplyJobResponse;
+import com.example.paymentselection.entity.ApplyJob;
+import com.example.paymentselection.entity.ApplyJobPartition;
+import com.example.paymentselection.enums.Action;
+import com.example.paymentselection.enums.ApplyJobStatus;
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.repository.ApplyJobPartitionRepository;
+import com.example.paymentselection.repository.ApplyJobRepository;
+import com.example.paymentselection.repository.PaymentRepository;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import com.example.paymentselection.util.BitmapUtils;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Motor da aplicação em lote: processa a seleção em lotes por ordem de id, cada um na sua transação.
+ *
+ * <p>Cada lote atualiza os pagamentos e grava o checkpoint da partição na mesma transação, então um job
+ * interrompido (queda, restart, timeout) é retomado do último lote confirmado sem reaplicar nada.
+ * O tamanho do lote se ajusta à latência observada, buscando {@code selection.apply.target-chunk-duration}.
+ *
+ * <p>Os jobs rodam fora da thread HTTP, em threads virtuais; no máximo
+ * {@code selection.apply.max-concurrent-jobs} executam ao mesmo tempo neste nó e os demais aguardam a vez.
+ * Um job pode ser dividido em {@code selection.apply.partitions} faixas de ids disjuntas, aplicadas em
+ * paralelo em conexões separadas; o total de conexões usadas pela aplicação em lote no nó é limitado por
+ * {@code selection.apply.max-connections}, sempre deixando {@code reserved-connections} livres no pool.
+ */
+@Slf4j
+@Service
+public class ApplyJobService {
+
+  @Autowired
+  private ApplyJobRepository applyJobRepository;
+
+  @Autowired
+  private ApplyJobPartitionRepository applyJobPartitionRepository;
+
+  @Autowired
+  private PaymentRepository paymentRepository;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private SelectionMetrics selectionMetrics;
+
+  @Autowired
+  private ReadYourWrites readYourWrites;
+
+  @Value("${selection.apply.chunk-size:5000}")
+  private int initialChunkSize = 5000;
+
+  @Value("${selection.apply.min-chunk-size:500}")
+  private int minChunkSize = 500;
+
+  @Value("${selection.apply.max-chunk-size:50000}")
+  private int maxChunkSize = 50000;
+
+  @Value("${selection.apply.target-chunk-duration:PT0.5S}")
+  private Duration targetChunkDuration = Duration.ofMillis(500);
+
+  @Value("${selection.apply.lease-timeout:PT2M}")
+  private Duration leaseTimeout = Duration.ofMinutes(2);
+
+  @Value("${selection.apply.heartbeat-interval:PT30S}")
+  private Duration heartbeatInterval = Duration.ofSeconds(30);
+
+  @Value("${selection.apply.resume-batch-size:10}")
+  private int resumeBatchSize = 10;
+
+  @Value("${selection.apply.max-concurrent-jobs:4}")
+  private int maxConcurrentJobs = 4;
+
+  @Value("${selection.apply.partitions:1}")
+  private int partitions = 1;
+
+  @Value("${selection.apply.max-connections:4}")
+  private int maxConnections = 4;
+
+  @Value("${selection.apply.reserved-connections:4}")
+  private int reservedConnections = 4;
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  private Semaphore jobPermits;
+
+  /**
+   * Conexões que as partições podem ocupar ao mesmo tempo neste nó (somando todos os jobs).
+   */
+  private Semaphore connectionPermits;
+
+  /**
+   * Jobs enviados ao executor deste nó e ainda não terminados, para não enfileirar o mesmo job duas vezes.
+   */
+  private final Set<UUID> submitted = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Identifica este nó como dono dos jobs que executa.
+   */
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private record Chunk(long lastId, int rows) {}
+
+  @PostConstruct
+  void init() {
+    jobPermits = new Semaphore(maxConcurrentJobs, true);
+
+    HikariDataSource hikari = hikari();
+    if (hikari != null) {
+      int available = Math.max(1, hikari.getMaximumPoolSize() - reservedConnections);
+      if (maxConnections > available) {
+        log.warn("selection.apply.max-connections={} reduzido para {} (pool de {} conexões, {} reservadas)",
+            maxConnections, available, hikari.getMaximumPoolSize(), reservedConnections);
+        maxConnections = available;
+      }
+    }
+    connectionPermits = new Semaphore(maxConnections, true);
+  }
+
+  /**
+   * Pool Hikari por trás do DataSource, mesmo quando envolvido (ex.: {@code GatedDataSource}).
+   */
+  private HikariDataSource hikari() {
+    try {
+      return dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)
+          ? dataSource.unwrap(HikariDataSource.class) : null;
+    } catch (SQLException e) {
+      return null;
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    // Jobs interrompidos aqui são retomados do último checkpoint quando o heartbeat expirar
+    executor.shutdownNow();
+  }
+
+  /**
+   * Cria o job com uma cópia do estado da seleção e suas partições; deve rodar na transação que
+   * consome a seleção.
+   */
+  public ApplyJob create(CachedSelection selection, Action action) {
+    SelectionState state = selection.state();
+    Roaring64NavigableMap ids = state.getMode() == Mode.ALL ? state.getExcluded() : state.getIncluded();
+
+    ApplyJob job = new ApplyJob();
+    job.setId(UUID.randomUUID());
+    job.setSelectionId(selection.id());
+    job.setUserId(selection.userId());
+    job.setAction(action);
+    job.setMode(state.getMode());
+    job.setFilterStatus(selection.filter().status());
+    job.setFilterVencimentoAte(selection.filter().vencimentoAte());
+    job.setIds(BitmapUtils.toBytes(ids));
+    job.setMaxId(paymentRepository.findMaxId());
+    job.setEstimatedRows(selection.selectedCount());
+    job.setOwner(nodeId);
+    job.setHeartbeatAt(Instant.now());
+    job.setCreatedAt(Instant.now());
+
+    List<long[]> ranges = partition(job.getMode(), ids, job.getMaxId(),
+        Math.max(1, Math.min(partitions, maxConnections)));
+    job.setPartitions(ranges.size());
+    applyJobRepository.save(job);
+
+    for (int i = 0; i < ranges.size(); i++) {
+      applyJobPartitionRepository.save(
+          new ApplyJobPartition(job.getId(), i, ranges.get(i)[0], ranges.get(i)[1], initialChunkSize));
+    }
+    return job;
+  }
+
+  /**
+   * Envia o job para execução em segundo plano, respeitando o limite de jobs simultâneos do nó.
+   */
+  public void submit(UUID jobId) {
+    if (!submitted.add(jobId)) {
+      return;
+    }
+
+    executor.execute(() -> {
+      try {
+        jobPermits.acquire();
+        try {
+          run(jobId);
+        } finally {
+          jobPermits.release();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException e) {
+        // Falhas depois de assumido o job já são registradas em run(); aqui só chega a da reivindicação
+        log.error("Falha ao assumir o job {}; será retomado na próxima verificação", jobId, e);
+      } finally {
+        submitted.remove(jobId);
+      }
+    });
+  }
+
+  /**
+   * Busca o job pelo ID, restrito ao usuário que o criou.
+   */
+  public Optional<ApplyJobResponse> find(UUID jobId, UUID userId) {
+    return applyJobRepository.findByIdAndUserId(jobId, userId)
+        .map(job -> ApplyJobResponse.of(job, Instant.now()));
+  }
+
+  /**
+   * Executa (ou retoma) o job até o fim, com as partições pendentes em paralelo. Não faz nada se outro
+   * nó estiver com o job. Depois de assumido, qualquer falha deixa o job como FAILED (ou, se nem isso for
+   * possível, com o heartbeat parado, para ser retomado); só a falha ao assumi-lo é propagada.
+   */
+  public void run(UUID jobId) {
+    Instant now = Instant.now();
+    Integer claimed = transactionTemplate.execute(status ->
+        applyJobRepository.claim(jobId, nodeId, now, now.minus(leaseTimeout)));
+    if (claimed == null || claimed == 0) {
+      return;
+    }
+
+    ApplyJob job = null;
+    try {
+      // Na transação de escrita, para ler do primário mesmo com réplicas de leitura
+      job = transactionTemplate.execute(status -> applyJobRepository.findById(jobId))
+          .orElseThrow(() -> new RuntimeException("Job de aplicação não encontrado"));
+      if (!runPartitions(job)) {
+        return;
+      }
+    } catch (RuntimeException e) {
+      fail(jobId, job, e);
+      return;
+    }
+
+    transactionTemplate.executeWithoutResult(status ->
+        applyJobRepository.finish(jobId, nodeId, ApplyJobStatus.COMPLETED, null, Instant.now()));
+    readYourWrites.markWritten(job.getUserId());
+  }
+
+  /**
+   * Aplica as partições pendentes em paralelo. Retorna falso se o job foi interrompido ou assumido por
+   * outro nó antes do fim; a falha de uma partição é relançada depois que as demais pararam.
+   */
+  private boolean runPartitions(ApplyJob job) {
+    UUID jobId = job.getId();
+    PaymentFilter filter = new PaymentFilter(job.getFilterStatus(), job.getFilterVencimentoAte());
+    Roaring64NavigableMap ids = BitmapUtils.fromBytes(job.getIds());
+
+    // Uma falha (ou a perda do job) em qualquer partição interrompe as demais no próximo lote
+    AtomicBoolean aborted = new AtomicBoolean();
+    AtomicBoolean leaseLost = new AtomicBoolean();
+    // O heartbeat é renovado à parte: um lote mais longo que o lease não deixa outro nó assumir o job
+    CountDownLatch finished = new CountDownLatch(1);
+    executor.execute(() -> renewLease(jobId, finished, aborted, leaseLost));
+
+    RuntimeException failure = null;
+    try {
+      List<Future<?>> running = new ArrayList<>();
+      for (ApplyJobPartition partition : applyJobPartitionRepository.findByJobIdOrderByPartitionNo(jobId)) {
+        if (partition.getStatus() != ApplyJobStatus.COMPLETED) {
+          // rankLong/select reconstroem caches internos do bitmap: cada partição usa o seu
+          Roaring64NavigableMap partitionIds = slice(ids, partition.getFromId(), partition.getToId());
+          running.add(executor.submit(() -> {
+            runPartition(job, filter, partitionIds, partition, aborted);
+            return null;
+          }));
+        }
+      }
+
+      for (Future<?> future : running) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          aborted.set(true);
+          Thread.currentThread().interrupt();
+          return false;
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof LeaseLostException) {
+            leaseLost.set(true);
+          } else if (failure == null) {
+            failure = e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+          }
+        }
+      }
+    } catch (RuntimeException e) {
+      // Falha ao preparar as partições: as que já começaram param no próximo lote
+      aborted.set(true);
+      throw e;
+    } finally {
+      // Sem interromper: uma thread virtual interrompida durante a consulta fecharia a conexão
+      finished.countDown();
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+    if (leaseLost.get()) {
+      log.warn("Job {} assumido por outro nó; interrompendo neste", jobId);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Registra a falha do job. Se nem o registro for possível, o job fica como está e, sem heartbeat, é
+   * retomado depois do lease.
+   */
+  private void fail(UUID jobId, ApplyJob job, RuntimeException failure) {
+    log.error("Falha no job {}", jobId, failure);
+    String message = failure.getMessage();
+    String error = message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    try {
+      transactionTemplate.executeWithoutResult(status ->
+          applyJobRepository.finish(jobId, nodeId, ApplyJobStatus.FAILED, error, Instant.now()));
+    } catch (RuntimeException e) {
+      log.error("Falha ao registrar o job {} como FAILED; será retomado quando o lease expirar", jobId, e);
+      return;
+    }
+    if (job != null) {
+      readYourWrites.markWritten(job.getUserId());
+    }
+  }
+
+  /**
+   * Renova o heartbeat do job a cada {@code selection.apply.heartbeat-interval} até as partições terminarem;
+   * se outro nó assumiu o job, interrompe as partições no próximo lote.
+   */
+  private void renewLease(UUID jobId, CountDownLatch finished, AtomicBoolean aborted, AtomicBoolean leaseLost) {
+    while (!aborted.get()) {
+      try {
+        if (finished.await(heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS)) {
+          return;
+        }
+      } catch (InterruptedException e) {
+        return;
+      }
+      try {
+        Integer renewed = transactionTemplate.execute(status ->
+            applyJobRepository.heartbeat(jobId, nodeId, Instant.now()));
+        if (renewed == null || renewed == 0) {
+          leaseLost.set(true);
+          aborted.set(true);
+        }
+      } catch (RuntimeException e) {
+        log.warn("Falha ao renovar o heartbeat do job {}; nova tentativa em {}", jobId, heartbeatInterval, e);
+      }
+    }
+  }
+
+  /**
+   * Retoma periodicamente (e logo após a inicialização) os jobs interrompidos em qualquer nó.
+   */
+  @Scheduled(fixedDelayString = "${selection.apply.resume-interval:PT30S}")
+  public void resumeStale() {
+    List<UUID> jobIds = applyJobRepository.findResumable(Instant.now().minus(leaseTimeout),
+        PageRequest.of(0, resumeBatchSize));
+
+    for (UUID jobId : jobIds) {
+      log.info("Retomando job de aplicação {}", jobId);
+      submit(jobId);
+    }
+  }
+
+  /**
+   * Aplica os lotes da partição a partir do seu checkpoint, ocupando uma das conexões do nó.
+   */
+  private void runPartition(ApplyJob job, PaymentFilter filter, Roaring64NavigableMap ids,
+      ApplyJobPartition partition, AtomicBoolean aborted) throws InterruptedException {
+    connectionPermits.acquire();
+    try {
+      long lastId = partition.getLastId();
+      int chunkSize = partition.getChunkSize();
+      while (!aborted.get()) {
+        long lastIdBefore = lastId;
+        int size = chunkSize;
+        long start = System.nanoTime();
+
+        Chunk chunk = transactionTemplate.execute(status ->
+            processChunk(job, filter, ids, partition, lastIdBefore, size));
+        if (chunk == null) {
+          transactionTemplate.executeWithoutResult(status ->
+              applyJobPartitionRepository.updateStatus(partition.getId(), ApplyJobStatus.COMPLETED));
+          return;
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        log.info("Job {} partição {}: lote ({}, {}] aplicado, {} linhas em {} ms (lote de {})",
+            job.getId(), partition.getPartitionNo(), lastIdBefore, chunk.lastId(), chunk.rows(),
+            elapsed.toMillis(), size);
+
+        lastId = chunk.lastId();
+        chunkSize = nextChunkSize(size, elapsed);
+      }
+    } catch (RuntimeException e) {
+      aborted.set(true);
+      throw e;
+    } finally {
+      connectionPermits.release();
+    }
+  }
+
+  /**
+   * Aplica o próximo lote da partição após {@code lastId} e grava o checkpoint. Retorna nulo quando
+   * a partição terminou.
+   */
+  private Chunk processChunk(ApplyJob job, PaymentFilter filter, Roaring64NavigableMap ids,
+      ApplyJobPartition partition, long lastId, int size) {
+    Chunk chunk = job.getMode() == Mode.ALL
+        ? applyFilterRange(job, filter, ids, lastId, partition.getToId(), size)
+        : applyIds(job, ids, lastId, partition.getToId(), size);
+    if (chunk == null) {
+      return null;
+    }
+    selectionMetrics.bulkRows(job.getAction(), job.getMode(), chunk.rows());
+
+    applyJobPartitionRepository.checkpoint(partition.getId(), chunk.lastId(), chunk.rows(), size);
+    if (applyJobRepository.progress(job.getId(), nodeId, chunk.rows(), Instant.now()) == 0) {
+      // Outro nó assumiu o job: desfaz este lote
+      throw new LeaseLostException();
+    }
+    return chunk;
+  }
+
+  /**
+   * Modo ALL: intervalo de ids que contém os próximos {@code size} pagamentos do filtro, menos os excluídos.
+   */
+  private Chunk applyFilterRange(ApplyJob job, PaymentFilter filter, Roaring64NavigableMap excluded,
+      long lastId, long toId, int size) {
+    if (lastId >= toId) {
+      return null;
+    }
+
+    Long bound = paymentRepository.findChunkEnd(lastId, toId, filter.status(), filter.vencimentoAte(), size);
+    long chunkToId = bound != null ? bound : toId;
+
+    // Só os excluídos desta faixa vão para o banco
+    List<Long> excludedInRange = idsInRange(excluded, lastId, chunkToId, Integer.MAX_VALUE);
+    int rows = job.getAction() == Action.PAY
+        ? paymentRepository.bulkUpdateByFilterInRange(filter, lastId, chunkToId, excludedInRange)
+        : paymentRepository.bulkCancelByFilterInRange(filter, lastId, chunkToId, excludedInRange);
+    return new Chunk(chunkToId, rows);
+  }
+
+  /**
+   * Modo NONE: os próximos {@code size} ids incluídos da faixa, a partir do checkpoint.
+   */
+  private Chunk applyIds(ApplyJob job, Roaring64NavigableMap ids, long lastId, long toId, int size) {
+    List<Long> batch = idsInRange(ids, lastId, toId, size);
+    if (batch.isEmpty()) {
+      return null;
+    }
+
+    int rows = job.getAction() == Action.PAY
+        ? paymentRepository.bulkUpdateByIds(batch)
+        : paymentRepository.bulkCancelByIds(batch);
+    return new Chunk(batch.get(batch.size() - 1), rows);
+  }
+
+  /**
+   * Divide os ids em até {@code count} faixas {@code (from, to]} disjuntas: no modo ALL, partes iguais
+   * de {@code (0, maxId]}; no modo NONE, partes com a mesma quantidade de ids incluídos.
+   */
+  static List<long[]> partition(Mode mode, Roaring64NavigableMap ids, long maxId, int count) {
+    List<long[]> ranges = new ArrayList<>();
+    long from = 0;
+    if (mode == Mode.ALL) {
+      long step = Math.max(1, (maxId + count - 1) / count);
+      while (from < maxId) {
+        long to = Math.min(from + step, maxId);
+        ranges.add(new long[] {from, to});
+        from = to;
+      }
+    } else {
+      long cardinality = ids.getLongCardinality();
+      int parts = (int) Math.min(count, cardinality);
+      for (int i = 1; i <= parts; i++) {
+        long to = ids.select(i * cardinality / parts - 1);
+        ranges.add(new long[] {from, to});
+        from = to;
+      }
+    }
+
+    if (ranges.isEmpty()) {
+      // Nada a aplicar: uma partição vazia, concluída no primeiro lote
+      ranges.add(new long[] {0, 0});
+    }
+    return ranges;
+  }
+
+  /**
+   * Cópia independente dos IDs do bitmap em {@code (fromId, toId]}.
+   */
+  static Roaring64NavigableMap slice(Roaring64NavigableMap ids, long fromId, long toId) {
+    Roaring64NavigableMap slice = new Roaring64NavigableMap();
+    if (fromId < toId) {
+      slice.addRange(fromId + 1, toId + 1);
+      slice.and(ids);
+    }
+    return slice;
+  }
+
+  /**
+   * Até {@code limit} IDs do bitmap em {@code (fromId, toId]}, em ordem.
+   */
+  private static List<Long> idsInRange(Roaring64NavigableMap ids, long fromId, long toId, int limit) {
+    long from = ids.rankLong(fromId);
+    long to = Math.min(ids.rankLong(toId), from + limit);
+
+    List<Long> result = new ArrayList<>((int) Math.max(0, to - from));
+    for (long i = from; i < to; i++) {
+      result.add(ids.select(i));
+    }
+    return result;
+  }
+
+  /**
+   * Ajusta o tamanho do lote para aproximar a duração alvo, no máximo dobrando ou reduzindo à metade.
+   */
+  int nextChunkSize(int current, Duration elapsed) {
+    long elapsedNanos = Math.max(elapsed.toNanos(), 1);
+    double factor = (double) targetChunkDuration.toNanos() / elapsedNanos;
+    factor = Math.max(0.5, Math.min(2.0, factor));
+    int next = (int) Math.round(current * factor);
+    return Math.max(minChunkSize, Math.min(maxChunkSize, next));
+  }
+
+  /**
+   * O checkpoint não foi gravado porque outro nó assumiu o job.
+   */
+  private static class LeaseLostException extends RuntimeException {
+  }
+
+}
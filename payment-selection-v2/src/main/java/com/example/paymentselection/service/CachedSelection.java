@@ -0,0 +1,48 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.entity.Selection;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import com.example.paymentselection.util.JsonUtils;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Estado decodificado de uma sessão de seleção mantido em cache, válido para a {@code version} indicada.
+ * O estado em cache não é alterado: atualizações trabalham sobre {@link SelectionState#copy()}.
+ */
+public record CachedSelection(
+    UUID id,
+    UUID userId,
+    PaymentFilter filter,
+    Instant expiresAt,
+    int version,
+    SelectionState state,
+    long selectedCount
+) {
+
+  /**
+   * Overhead aproximado por entrada (chaves, filtro decodificado, objetos do bitmap).
+   */
+  private static final long ENTRY_OVERHEAD_BYTES = 512;
+
+  public static CachedSelection of(Selection selection, SelectionState state, long selectedCount) {
+    return new CachedSelection(selection.getId(), selection.getUserId(),
+        PaymentFilter.of(JsonUtils.fromJson(selection.getFilterJson())), selection.getExpiresAt(),
+        selection.getVersion(), state, selectedCount);
+  }
+
+  /**
+   * Nova entrada com o estado resultante de uma atualização confirmada.
+   */
+  public CachedSelection withState(int version, SelectionState state, long selectedCount) {
+    return new CachedSelection(id, userId, filter, expiresAt, version, state, selectedCount);
+  }
+
+  public boolean isExpired(Instant now) {
+    return expiresAt != null && !expiresAt.isAfter(now);
+  }
+
+  public long weight() {
+    return ENTRY_OVERHEAD_BYTES + state.sizeInBytes();
+  }
+}
@@ -0,0 +1,111 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.config.ReadYourWrites;
+import com.example.paymentselection.repository.PaymentTableVersion;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache de contagens de pagamentos por filtro normalizado.
+ * Uma contagem só é reaproveitada enquanto a {@link PaymentTableVersion} não mudar, o que acontece a
+ * cada aplicação em lote confirmada neste nó (os updates JDBC do {@code PaymentBulkRepositoryImpl}, única
+ * escrita em pagamentos); o TTL limita por quanto tempo escritas feitas por outros nós podem passar despercebidas. Com réplicas de leitura,
+ * contagens feitas logo depois de uma escrita deste nó não entram no cache.
+ */
+@Component
+public class PaymentCountCache {
+
+  private record Entry(long version, long count, Instant cachedAt) {}
+
+  private final Map<PaymentFilter, Entry> entries = new ConcurrentHashMap<>();
+
+  private final Set<PaymentFilter> refreshing = ConcurrentHashMap.newKeySet();
+
+  @Autowired
+  private PaymentTableVersion paymentTableVersion;
+
+  @Autowired
+  private ReadYourWrites readYourWrites;
+
+  @Value("${payment.count-cache.ttl:PT1M}")
+  private Duration ttl = Duration.ofMinutes(1);
+
+  @Value("${payment.count-cache.max-entries:1000}")
+  private int maxEntries = 1000;
+
+  /**
+   * Retorna a contagem em cache para o filtro ou a calcula com {@code counter}.
+   */
+  public long count(PaymentFilter filter, ToLongFunction<PaymentFilter> counter) {
+    // A versão é lida antes da contagem: se uma escrita for confirmada durante o COUNT,
+    // o resultado fica associado à versão antiga e é descartado na próxima leitura.
+    long version = paymentTableVersion.current();
+    Instant now = Instant.now();
+
+    Entry cached = entries.get(filter);
+    if (cached != null && cached.version() == version && cached.cachedAt().plus(ttl).isAfter(now)) {
+      return cached.count();
+    }
+
+    long count = counter.applyAsLong(filter);
+    if (!readYourWrites.settled(paymentTableVersion.writtenAt())) {
+      // Contado talvez numa réplica que ainda não recebeu a última escrita deste nó
+      return count;
+    }
+    if (entries.size() >= maxEntries) {
+      entries.values().removeIf(entry -> entry.version() != version || !entry.cachedAt().plus(ttl).isAfter(now));
+      if (entries.size() >= maxEntries) {
+        entries.clear();
+      }
+    }
+    entries.put(filter, new Entry(version, count, now));
+    return count;
+  }
+
+  /**
+   * Contagem exata em cache, se ainda válida; não consulta o banco.
+   */
+  public OptionalLong peek(PaymentFilter filter) {
+    Entry cached = entries.get(filter);
+    if (cached != null && cached.version() == paymentTableVersion.current()
+        && cached.cachedAt().plus(ttl).isAfter(Instant.now())) {
+      return OptionalLong.of(cached.count());
+    }
+    return OptionalLong.empty();
+  }
+
+  /**
+   * Última contagem calculada para o filtro, mesmo que desatualizada (serve de estimativa).
+   */
+  public OptionalLong lastKnown(PaymentFilter filter) {
+    Entry cached = entries.get(filter);
+    return cached != null ? OptionalLong.of(cached.count()) : OptionalLong.empty();
+  }
+
+  /**
+   * Calcula a contagem em segundo plano, no máximo uma vez por filtro ao mesmo tempo;
+   * o resultado é lido depois com {@link #peek}.
+   */
+  @Async
+  public void refresh(PaymentFilter filter, ToLongFunction<PaymentFilter> counter) {
+    if (!refreshing.add(filter)) {
+      return;
+    }
+    try {
+      count(filter, counter);
+    } finally {
+      refreshing.remove(filter);
+    }
+  }
+
+}
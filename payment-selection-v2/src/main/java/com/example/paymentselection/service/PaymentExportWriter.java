@@ -0,0 +1,98 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.dto.PaymentExportRow;
+import com.example.paymentselection.enums.ExportFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escreve as linhas exportadas diretamente no stream de saída, sem acumular a resposta em memória.
+ */
+class PaymentExportWriter implements Flushable {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final ExportFormat format;
+  private final Writer writer;
+  private final JsonGenerator json;
+
+  PaymentExportWriter(ExportFormat format, OutputStream out) throws IOException {
+    this.format = format;
+    this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    if (format == ExportFormat.NDJSON) {
+      this.json = JSON_FACTORY.createGenerator(writer);
+      // Cada objeto em sua própria linha, sem o separador padrão entre valores de raiz
+      this.json.setRootValueSeparator(null);
+    } else {
+      this.json = null;
+    }
+  }
+
+  void writeHeader() throws IOException {
+    if (format == ExportFormat.CSV) {
+      writer.write("id,status,vencimento,valor,descricao,createdAt,updatedAt\n");
+    }
+  }
+
+  void write(PaymentExportRow row) throws IOException {
+    if (format == ExportFormat.NDJSON) {
+      json.writeStartObject();
+      json.writeNumberField("id", row.id());
+      json.writeStringField("status", row.status());
+      json.writeStringField("vencimento", toText(row.vencimento()));
+      if (row.valor() != null) {
+        json.writeNumberField("valor", row.valor());
+      } else {
+        json.writeNullField("valor");
+      }
+      json.writeStringField("descricao", row.descricao());
+      json.writeStringField("createdAt", toText(row.createdAt()));
+      json.writeStringField("updatedAt", toText(row.updatedAt()));
+      json.writeEndObject();
+      json.writeRaw('\n');
+    } else {
+      writer.write(Long.toString(row.id()));
+      writeCsvField(row.status());
+      writeCsvField(toText(row.vencimento()));
+      writeCsvField(row.valor() != null ? row.valor().toPlainString() : null);
+      writeCsvField(row.descricao());
+      writeCsvField(toText(row.createdAt()));
+      writeCsvField(toText(row.updatedAt()));
+      writer.write('\n');
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (json != null) {
+      json.flush();
+    }
+    writer.flush();
+  }
+
+  private void writeCsvField(String value) throws IOException {
+    writer.write(',');
+    if (value == null) {
+      return;
+    }
+    if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+      writer.write('"');
+      writer.write(value.replace("\"", "\"\""));
+      writer.write('"');
+    } else {
+      writer.write(value);
+    }
+  }
+
+  private static String toText(Object value) {
+    return value != null ? value.toString() : null;
+  }
+
+}
@@ -1,13 +1,24 @@
 package com.example.paymentselection.service;
 
-import com.example.paymentselection.entity.Payment;
+import com.example.paymentselection.dto.PaymentCountResponse;
+import com.example.paymentselection.dto.PaymentCursorPage;
+import com.example.paymentselection.dto.PaymentSlice;
+import com.example.paymentselection.dto.PaymentSummary;
 import com.example.paymentselection.repository.PaymentRepository;
+import com.example.paymentselection.repository.spec.PaymentCursor;
+import com.example.paymentselection.repository.spec.PaymentFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
 
 /**
  * Serviço para gerenciamento de pagamentos.
@@ -18,10 +29,14 @@ public class PaymentService {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private PaymentCountCache paymentCountCache;
+
     /**
      * Busca pagamentos com filtros e paginação.
      */
-    public Page<Payment> searchPayments(String status, LocalDate vencimentoAte, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public Page<PaymentSummary> searchPayments(String status, LocalDate vencimentoAte, Pageable pageable) {
         boolean hasStatus = status != null && !status.isBlank();
         boolean hasDate = vencimentoAte != null;
 
@@ -34,7 +49,108 @@ public class PaymentService {
         if (hasDate) {
             return paymentRepository.findByVencimentoLessThanEqual(vencimentoAte, pageable);
         }
-        return paymentRepository.findAll(pageable);
+        return paymentRepository.findBy(pageable);
+    }
+
+    /**
+     * Busca pagamentos com filtros e paginação, sem a consulta de contagem.
+     * O total vem da contagem em cache ou da estimativa do banco; na última página ele é exato.
+     */
+    @Transactional(readOnly = true)
+    public PaymentSlice searchPaymentsSlice(String status, LocalDate vencimentoAte, Pageable pageable) {
+        PaymentFilter filter = PaymentFilter.of(status, vencimentoAte);
+        Slice<PaymentSummary> slice = findSlice(filter, pageable);
+
+        PaymentCountResponse count;
+        long seen = pageable.getOffset() + slice.getNumberOfElements();
+        if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+            count = new PaymentCountResponse(seen, true);
+        } else {
+            count = currentCount(filter);
+            if (slice.hasNext() && count.total() != null && !count.exact() && count.total() <= seen) {
+                // A estimativa não pode ser menor do que o que já foi lido
+                count = new PaymentCountResponse(seen + 1, false);
+            }
+        }
+
+        return new PaymentSlice(slice.getContent(), slice.getNumber(), slice.getSize(), slice.hasNext(),
+            count.total(), count.exact());
+    }
+
+    /**
+     * Contagem de pagamentos do filtro: exata, se já estiver em cache; senão estimada,
+     * com a contagem exata disparada em segundo plano para ser consultada depois.
+     */
+    @Transactional(readOnly = true)
+    public PaymentCountResponse countPayments(String status, LocalDate vencimentoAte) {
+        PaymentFilter filter = PaymentFilter.of(status, vencimentoAte);
+        PaymentCountResponse count = currentCount(filter);
+        if (!count.exact()) {
+            paymentCountCache.refresh(filter, f -> paymentRepository.count(f.toSpecification()));
+        }
+        return count;
+    }
+
+    /**
+     * Busca pagamentos por cursor (keyset), ordenados por vencimento e id.
+     * Com {@code before} a página termina antes do cursor; caso contrário começa depois de {@code after}.
+     */
+    @Transactional(readOnly = true)
+    public PaymentCursorPage searchPaymentsByCursor(String status, LocalDate vencimentoAte,
+            PaymentCursor after, PaymentCursor before, int size) {
+        PaymentFilter filter = PaymentFilter.of(status, vencimentoAte);
+
+        // Uma linha a mais indica se existe outra página na direção navegada
+        if (before != null) {
+            List<PaymentSummary> rows = paymentRepository.findBefore(filter, before, size + 1);
+            boolean hasPrevious = rows.size() > size;
+            List<PaymentSummary> content = new ArrayList<>(rows.subList(0, Math.min(size, rows.size())));
+            Collections.reverse(content);
+
+            return new PaymentCursorPage(content,
+                content.isEmpty() ? null : PaymentCursor.of(content.get(content.size() - 1)).encode(),
+                hasPrevious ? PaymentCursor.of(content.get(0)).encode() : null);
+        }
+
+        List<PaymentSummary> rows = paymentRepository.findAfter(filter, after, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<PaymentSummary> content = rows.subList(0, Math.min(size, rows.size()));
+
+        return new PaymentCursorPage(content,
+            hasNext ? PaymentCursor.of(content.get(content.size() - 1)).encode() : null,
+            after != null && !content.isEmpty() ? PaymentCursor.of(content.get(0)).encode() : null);
+    }
+
+    private Slice<PaymentSummary> findSlice(PaymentFilter filter, Pageable pageable) {
+        boolean hasStatus = filter.status() != null;
+        boolean hasDate = filter.vencimentoAte() != null;
+
+        if (hasStatus && hasDate) {
+            return paymentRepository.findSliceByStatusAndVencimentoLessThanEqual(filter.status(), filter.vencimentoAte(), pageable);
+        }
+        if (hasStatus) {
+            return paymentRepository.findSliceByStatus(filter.status(), pageable);
+        }
+        if (hasDate) {
+            return paymentRepository.findSliceByVencimentoLessThanEqual(filter.vencimentoAte(), pageable);
+        }
+        return paymentRepository.findSliceBy(pageable);
+    }
+
+    /**
+     * Contagem exata em cache ou, na falta dela, a última conhecida / estimativa do planejador.
+     */
+    private PaymentCountResponse currentCount(PaymentFilter filter) {
+        OptionalLong exact = paymentCountCache.peek(filter);
+        if (exact.isPresent()) {
+            return new PaymentCountResponse(exact.getAsLong(), true);
+        }
+
+        OptionalLong estimate = paymentCountCache.lastKnown(filter);
+        if (estimate.isEmpty()) {
+            estimate = paymentRepository.estimateCount(filter);
+        }
+        return new PaymentCountResponse(estimate.isPresent() ? estimate.getAsLong() : null, false);
     }
 
 }
@@ -0,0 +1,192 @@
+package com.example.paymentselection.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Cache em memória (por nó) do estado decodificado das seleções, chaveado por {@code (id, userId)}.
+ * Limitado pelo tamanho aproximado dos bitmaps (LRU) e pelo {@code expiresAt} de cada seleção.
+ */
+@Component
+public class SelectionCache {
+
+  private record Key(UUID id, UUID userId) {}
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final LinkedHashMap<Key, CachedSelection> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long weight;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${selection.cache.max-weight:64MB}")
+  private DataSize maxWeight = DataSize.ofMegabytes(64);
+
+  private Counter hits;
+  private Counter misses;
+  private Counter sizeEvictions;
+  private Counter expiredEvictions;
+  private Counter invalidations;
+
+  @PostConstruct
+  void registerMetrics() {
+    hits = meterRegistry.counter("selection.cache.requests", "result", "hit");
+    misses = meterRegistry.counter("selection.cache.requests", "result", "miss");
+    sizeEvictions = meterRegistry.counter("selection.cache.evictions", "cause", "size");
+    expiredEvictions = meterRegistry.counter("selection.cache.evictions", "cause", "expired");
+    invalidations = meterRegistry.counter("selection.cache.evictions", "cause", "invalidated");
+    Gauge.builder("selection.cache.entries", this, SelectionCache::size).register(meterRegistry);
+    Gauge.builder("selection.cache.weight", this, SelectionCache::weight)
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Busca o estado em cache; entradas expiradas são descartadas.
+   */
+  public CachedSelection get(UUID id, UUID userId) {
+    Key key = new Key(id, userId);
+    lock.lock();
+    try {
+      CachedSelection cached = entries.get(key);
+      if (cached != null && cached.isExpired(Instant.now())) {
+        remove(key);
+        expiredEvictions.increment();
+        cached = null;
+      }
+      (cached != null ? hits : misses).increment();
+      return cached;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Grava a entrada; dentro de uma transação, somente após o commit (write-through).
+   */
+  public void put(CachedSelection cached) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          store(cached);
+        }
+      });
+    } else {
+      store(cached);
+    }
+  }
+
+  /**
+   * Remove a entrada (conflito de versão, seleção aplicada ou removida).
+   */
+  public void invalidate(UUID id, UUID userId) {
+    lock.lock();
+    try {
+      if (remove(new Key(id, userId)) != null) {
+        invalidations.increment();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Descarta periodicamente as entradas cujo {@code expiresAt} já passou.
+   */
+  @Scheduled(fixedDelayString = "${selection.cache.expiration-interval:PT1M}")
+  public void evictExpired() {
+    Instant now = Instant.now();
+    lock.lock();
+    try {
+      Iterator<Map.Entry<Key, CachedSelection>> it = entries.entrySet().iterator();
+      while (it.hasNext()) {
+        CachedSelection cached = it.next().getValue();
+        if (cached.isExpired(now)) {
+          it.remove();
+          weight -= cached.weight();
+          expiredEvictions.increment();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long weight() {
+    lock.lock();
+    try {
+      return weight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void store(CachedSelection cached) {
+    long entryWeight = cached.weight();
+    if (entryWeight > maxWeight.toBytes()) {
+      // Seleção maior que o cache inteiro: não vale a pena manter
+      invalidate(cached.id(), cached.userId());
+      return;
+    }
+
+    Key key = new Key(cached.id(), cached.userId());
+    lock.lock();
+    try {
+      CachedSelection current = entries.get(key);
+      if (current != null && current.version() > cached.version()) {
+        // Um commit mais novo já atualizou a entrada
+        return;
+      }
+      remove(key);
+      entries.put(key, cached);
+      weight += entryWeight;
+
+      // Evicção LRU: a ordem de acesso do LinkedHashMap começa pela entrada menos usada
+      Iterator<CachedSelection> it = entries.values().iterator();
+      while (weight > maxWeight.toBytes() && it.hasNext()) {
+        CachedSelection eldest = it.next();
+        it.remove();
+        weight -= eldest.weight();
+        sizeEvictions.increment();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private CachedSelection remove(Key key) {
+    CachedSelection removed = entries.remove(key);
+    if (removed != null) {
+      weight -= removed.weight();
+    }
+    return removed;
+  }
+
+}
@@ -0,0 +1,164 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.entity.Selection;
+import com.example.paymentselection.entity.SelectionDelta;
+import com.example.paymentselection.enums.DeltaOperation;
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.repository.SelectionDeltaRepository;
+import com.example.paymentselection.repository.SelectionRepository;
+import com.example.paymentselection.repository.projection.SelectionSnapshot;
+import com.example.paymentselection.util.BitmapUtils;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Serviço do log append-only de alterações das seleções.
+ * Cada PATCH grava apenas um delta pequeno; a compactação periódica incorpora os deltas ao snapshot.
+ */
+@Slf4j
+@Service
+public class SelectionDeltaService {
+
+  @Autowired
+  private SelectionRepository selectionRepository;
+
+  @Autowired
+  private SelectionDeltaRepository selectionDeltaRepository;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Value("${selection.delta.compaction-threshold:32}")
+  private long compactionThreshold = 32;
+
+  @Value("${selection.delta.compaction-batch-size:100}")
+  private int compactionBatchSize = 100;
+
+  /**
+   * Reconstrói o estado atual: snapshot mais os deltas pendentes.
+   */
+  public SelectionState load(UUID selectionId) {
+    // Os deltas são lidos antes do snapshot: se uma compactação terminar entre as duas leituras,
+    // os deltas já incorporados são descartados pela versão do snapshot novo.
+    List<SelectionDelta> deltas = selectionDeltaRepository.findBySelectionIdOrderByVersionAscIdAsc(selectionId);
+    SelectionSnapshot snapshot = selectionRepository.findSnapshotById(selectionId)
+        .orElseThrow(SelectionNotFoundException::new);
+
+    return fold(snapshot, deltas);
+  }
+
+  /**
+   * Avança a versão da seleção; falha se outra atualização já tiver avançado.
+   */
+  public int nextVersion(UUID selectionId, int version) {
+    if (selectionRepository.incrementVersion(selectionId, version) == 0) {
+      throw new ObjectOptimisticLockingFailureException(Selection.class, selectionId);
+    }
+    return version + 1;
+  }
+
+  /**
+   * Avança a versão gravando a nova contagem de selecionados; falha se outra atualização já tiver avançado.
+   */
+  public int nextVersion(UUID selectionId, int version, long selectedCount) {
+    if (selectionRepository.incrementVersion(selectionId, version, selectedCount) == 0) {
+      throw new ObjectOptimisticLockingFailureException(Selection.class, selectionId);
+    }
+    return version + 1;
+  }
+
+  /**
+   * Troca o modo: o snapshot volta a ter conjuntos vazios e os deltas pendentes são descartados.
+   */
+  public void reset(UUID selectionId, int version, Mode mode, long selectedCount) {
+    byte[] empty = BitmapUtils.toBytes(new Roaring64NavigableMap());
+    if (selectionRepository.resetSnapshot(selectionId, version, mode, empty, selectedCount) == 0) {
+      throw new ObjectOptimisticLockingFailureException(Selection.class, selectionId);
+    }
+    selectionDeltaRepository.deleteBySelectionId(selectionId);
+  }
+
+  /**
+   * Grava uma operação no log de deltas.
+   */
+  public void append(UUID selectionId, int version, DeltaOperation op, Roaring64NavigableMap ids) {
+    selectionDeltaRepository.save(new SelectionDelta(selectionId, version, op, BitmapUtils.toBytes(ids)));
+  }
+
+  /**
+   * Remove todos os deltas de uma seleção.
+   */
+  public void deleteAll(UUID selectionId) {
+    selectionDeltaRepository.deleteBySelectionId(selectionId);
+  }
+
+  /**
+   * Compacta periodicamente as seleções com muitos deltas pendentes.
+   */
+  @Scheduled(fixedDelayString = "${selection.delta.compaction-interval:PT30S}")
+  public void compactPending() {
+    List<UUID> selectionIds = selectionDeltaRepository.findSelectionIdsToCompact(
+        compactionThreshold, PageRequest.of(0, compactionBatchSize));
+
+    for (UUID selectionId : selectionIds) {
+      try {
+        transactionTemplate.executeWithoutResult(status -> compact(selectionId));
+      } catch (RuntimeException e) {
+        log.warn("Falha ao compactar deltas da seleção {}", selectionId, e);
+      }
+    }
+  }
+
+  /**
+   * Incorpora os deltas pendentes ao snapshot e remove os deltas incorporados.
+   */
+  @Transactional
+  public void compact(UUID selectionId) {
+    List<SelectionDelta> deltas = selectionDeltaRepository.findBySelectionIdOrderByVersionAscIdAsc(selectionId);
+    SelectionSnapshot snapshot = selectionRepository.findSnapshotById(selectionId).orElse(null);
+
+    if (snapshot == null) {
+      // Seleção já removida: os deltas órfãos não têm mais utilidade
+      selectionDeltaRepository.deleteBySelectionId(selectionId);
+      return;
+    }
+
+    List<SelectionDelta> pending = deltas.stream()
+        .filter(delta -> delta.getVersion() > snapshot.snapshotVersion())
+        .toList();
+    if (pending.isEmpty()) {
+      selectionDeltaRepository.deleteUpToVersion(selectionId, snapshot.snapshotVersion());
+      return;
+    }
+
+    SelectionState state = fold(snapshot, pending);
+    int snapshotVersion = pending.get(pending.size() - 1).getVersion();
+
+    int updated = selectionRepository.writeSnapshot(selectionId,
+        BitmapUtils.toBytes(state.getIncluded()), BitmapUtils.toBytes(state.getExcluded()), snapshotVersion);
+    if (updated > 0) {
+      selectionDeltaRepository.deleteUpToVersion(selectionId, snapshotVersion);
+    }
+  }
+
+  private static SelectionState fold(SelectionSnapshot snapshot, List<SelectionDelta> deltas) {
+    SelectionState state = SelectionState.of(snapshot);
+    for (SelectionDelta delta : deltas) {
+      if (delta.getVersion() > snapshot.snapshotVersion()) {
+        state.apply(delta.getOp(), BitmapUtils.fromBytes(delta.getIds()));
+      }
+    }
+    return state;
+  }
+
+}
@@ -0,0 +1,155 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.dto.PaymentExportRow;
+import com.example.paymentselection.enums.ExportFormat;
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongPredicate;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+/**
+ * Serviço de exportação dos pagamentos de uma seleção em NDJSON ou CSV.
+ *
+ * <p>As linhas são lidas por um cursor JDBC somente-leitura e de avanço único (com {@code fetchSize}
+ * fixo, o driver do PostgreSQL busca um lote por vez) e escritas direto na resposta, sem passar pelo
+ * contexto de persistência: o uso de memória não depende do tamanho da exportação. No modo NONE, cada lote
+ * de IDs vai num único parâmetro array ({@code id = ANY(?)}), com o mesmo texto de comando em todos os lotes.
+ */
+@Service
+public class SelectionExportService {
+
+  private static final String COLUMNS = "id, status, vencimento, valor, descricao, created_at, updated_at";
+
+  @Autowired
+  private SelectionService selectionService;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Value("${selection.export.fetch-size:1000}")
+  private int fetchSize = 1000;
+
+  @Value("${selection.export.id-batch-size:1000}")
+  private int idBatchSize = 1000;
+
+  /**
+   * Busca a seleção a exportar; chamado antes de a resposta começar, para que erros virem status HTTP.
+   */
+  public CachedSelection find(UUID id, UUID userId) {
+    return selectionService.loadSelection(id, userId);
+  }
+
+  /**
+   * Escreve os pagamentos selecionados em {@code out}, em ordem de id. Retorna o número de linhas.
+   */
+  @Transactional(readOnly = true)
+  public long export(CachedSelection selection, ExportFormat format, OutputStream out) throws IOException {
+    PaymentExportWriter writer = new PaymentExportWriter(format, out);
+    writer.writeHeader();
+
+    SelectionState state = selection.state();
+    long rows;
+    if (state.getMode() == Mode.ALL) {
+      // Todos que atendem ao filtro, menos os excluídos (conferidos no bitmap em memória)
+      Roaring64NavigableMap excluded = state.getExcluded();
+      rows = stream(selection.filter(), Collections.emptyList(), id -> !excluded.contains(id), writer);
+    } else {
+      // Apenas os incluídos que ainda atendem ao filtro, buscados em lotes pela chave primária
+      rows = 0;
+      List<Long> batch = new ArrayList<>(idBatchSize);
+      LongIterator it = state.getIncluded().getLongIterator();
+      while (it.hasNext()) {
+        batch.add(it.next());
+        if (batch.size() == idBatchSize || !it.hasNext()) {
+          rows += stream(selection.filter(), batch, id -> true, writer);
+          batch.clear();
+        }
+      }
+    }
+
+    writer.flush();
+    return rows;
+  }
+
+  private long stream(PaymentFilter filter, List<Long> ids, LongPredicate accept, PaymentExportWriter writer) {
+    StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM payment WHERE 1 = 1");
+    List<Object> args = new ArrayList<>();
+    if (StringUtils.hasText(filter.status())) {
+      sql.append(" AND status = ?");
+      args.add(filter.status());
+    }
+    if (filter.vencimentoAte() != null) {
+      sql.append(" AND vencimento <= ?");
+      args.add(filter.vencimentoAte());
+    }
+    if (!ids.isEmpty()) {
+      sql.append(" AND id = ANY(CAST(? AS BIGINT ARRAY))");
+      args.add(ids);
+    }
+    sql.append(" ORDER BY id");
+
+    long[] rows = {0};
+    jdbcTemplate.query(connection -> {
+      PreparedStatement statement = connection.prepareStatement(sql.toString(),
+          ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      statement.setFetchSize(fetchSize);
+      for (int i = 0; i < args.size(); i++) {
+        if (args.get(i) instanceof List<?> batch) {
+          statement.setArray(i + 1, connection.createArrayOf("bigint", batch.toArray()));
+        } else {
+          statement.setObject(i + 1, args.get(i));
+        }
+      }
+      return statement;
+    }, (RowCallbackHandler) rs -> {
+      long id = rs.getLong("id");
+      if (accept.test(id)) {
+        write(writer, toRow(id, rs));
+        rows[0]++;
+      }
+    });
+    return rows[0];
+  }
+
+  private static PaymentExportRow toRow(long id, ResultSet rs) throws SQLException {
+    OffsetDateTime createdAt = rs.getObject("created_at", OffsetDateTime.class);
+    OffsetDateTime updatedAt = rs.getObject("updated_at", OffsetDateTime.class);
+    return new PaymentExportRow(id,
+        rs.getString("status"),
+        rs.getObject("vencimento", LocalDate.class),
+        rs.getBigDecimal("valor"),
+        rs.getString("descricao"),
+        createdAt != null ? createdAt.toInstant() : null,
+        updatedAt != null ? updatedAt.toInstant() : null);
+  }
+
+  private static void write(PaymentExportWriter writer, PaymentExportRow row) {
+    try {
+      writer.write(row);
+    } catch (IOException e) {
+      // Cliente desconectou: interrompe a leitura do cursor
+      throw new UncheckedIOException(e);
+    }
+  }
+
+}
@@ -0,0 +1,179 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.enums.Action;
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.repository.SelectionRepository;
+import com.example.paymentselection.repository.projection.ModeCount;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Métricas do ciclo de vida das seleções, expostas em {@code /actuator/metrics}:
+ * <ul>
+ *   <li>{@code selection.operations} (timer): create/update/batch/apply, por modo, ação e resultado;</li>
+ *   <li>{@code selection.count.by.filter} (timer): contagem por filtro, vinda do cache ou do banco;</li>
+ *   <li>{@code selection.patch.ids} (summary): IDs incluídos/excluídos por PATCH;</li>
+ *   <li>{@code selection.batch.operations} (summary): operações por PATCH em lote;</li>
+ *   <li>{@code selection.apply.rows} (summary): linhas afetadas por update em lote;</li>
+ *   <li>{@code selection.apply.subscribers} (gauge): streams de progresso de jobs abertos no nó;</li>
+ *   <li>{@code selection.live} (gauge): seleções não expiradas, por modo;</li>
+ *   <li>{@code selection.conflicts} (counter): conflitos de versão (lock otimista);</li>
+ *   <li>{@code selection.reaper.reclaimed} (counter): seleções expiradas removidas;</li>
+ *   <li>{@code selection.reaper.batch} (timer): duração de cada lote de remoção.</li>
+ * </ul>
+ */
+@Component
+public class SelectionMetrics {
+
+  /**
+   * Valor de tag quando o modo ou a ação não se aplicam (ou ainda não são conhecidos).
+   */
+  static final String NOT_APPLICABLE = "n/a";
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private SelectionRepository selectionRepository;
+
+  private final Map<Mode, AtomicLong> live = new EnumMap<>(Mode.class);
+
+  @PostConstruct
+  void registerMetrics() {
+    for (Mode mode : Mode.values()) {
+      AtomicLong count = new AtomicLong();
+      live.put(mode, count);
+      Gauge.builder("selection.live", count, AtomicLong::get)
+          .tag("mode", mode.name())
+          .register(meterRegistry);
+    }
+  }
+
+  /**
+   * Inicia a medição de uma operação; o modo e a ação são informados quando conhecidos.
+   */
+  public Sample start(String operation) {
+    return new Sample(operation, System.nanoTime());
+  }
+
+  public void countByFilter(Mode mode, boolean cached, long nanos) {
+    Timer.builder("selection.count.by.filter")
+        .tag("mode", tag(mode))
+        .tag("source", cached ? "cache" : "database")
+        .register(meterRegistry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void patchIds(Mode mode, long includeIds, long excludeIds) {
+    idsSummary(mode, "include").record(includeIds);
+    idsSummary(mode, "exclude").record(excludeIds);
+  }
+
+  public void batchOperations(int operations) {
+    DistributionSummary.builder("selection.batch.operations")
+        .baseUnit("operations")
+        .register(meterRegistry)
+        .record(operations);
+  }
+
+  public void bulkRows(Action action, Mode mode, int rows) {
+    DistributionSummary.builder("selection.apply.rows")
+        .baseUnit("rows")
+        .tag("action", tag(action))
+        .tag("mode", tag(mode))
+        .register(meterRegistry)
+        .record(rows);
+  }
+
+  public void progressSubscribers(Supplier<Number> subscribers) {
+    Gauge.builder("selection.apply.subscribers", subscribers)
+        .register(meterRegistry);
+  }
+
+  public void conflict(String operation, Mode mode) {
+    meterRegistry.counter("selection.conflicts", "operation", operation, "mode", tag(mode)).increment();
+  }
+
+  public void reaped(int selections, long nanos) {
+    meterRegistry.counter("selection.reaper.reclaimed").increment(selections);
+    Timer.builder("selection.reaper.batch")
+        .register(meterRegistry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Atualiza a contagem de seleções vivas (consulta agregada, fora do caminho das requisições).
+   */
+  @Scheduled(fixedDelayString = "${selection.metrics.live-refresh-interval:PT30S}")
+  public void refreshLive() {
+    Map<Mode, Long> counts = new EnumMap<>(Mode.class);
+    for (ModeCount count : selectionRepository.countLiveByMode(Instant.now())) {
+      counts.put(count.mode(), count.count());
+    }
+    live.forEach((mode, value) -> value.set(counts.getOrDefault(mode, 0L)));
+  }
+
+  private DistributionSummary idsSummary(Mode mode, String set) {
+    return DistributionSummary.builder("selection.patch.ids")
+        .baseUnit("ids")
+        .tag("mode", tag(mode))
+        .tag("set", set)
+        .register(meterRegistry);
+  }
+
+  private static String tag(Enum<?> value) {
+    return value != null ? value.name() : NOT_APPLICABLE;
+  }
+
+  /**
+   * Medição em andamento de uma operação; {@link #stop()} registra o tempo com o resultado.
+   */
+  public class Sample {
+
+    private final String operation;
+    private final long start;
+    private Mode mode;
+    private Action action;
+    private boolean success;
+
+    private Sample(String operation, long start) {
+      this.operation = operation;
+      this.start = start;
+    }
+
+    public void mode(Mode mode) {
+      this.mode = mode;
+    }
+
+    public void action(Action action) {
+      this.action = action;
+    }
+
+    public void success() {
+      this.success = true;
+    }
+
+    public void stop() {
+      Timer.builder("selection.operations")
+          .tag("operation", operation)
+          .tag("mode", tag(mode))
+          .tag("action", tag(action))
+          .tag("outcome", success ? "success" : "error")
+          .register(meterRegistry)
+          .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+}
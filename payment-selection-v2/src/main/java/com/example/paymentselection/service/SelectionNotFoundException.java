@@ -0,0 +1,16 @@
+package com.example.paymentselection.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Seleção inexistente (expirada, já aplicada ou de outro usuário); respondida com 404.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class SelectionNotFoundException extends RuntimeException {
+
+  public SelectionNotFoundException() {
+    super("Seleção não encontrada");
+  }
+
+}
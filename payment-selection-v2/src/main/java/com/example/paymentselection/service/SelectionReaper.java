@@ -0,0 +1,67 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.repository.SelectionRepository;
+import java.time.Duration;
+import java.time.Instant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Remove as seleções expiradas que nunca foram aplicadas (o apply já remove as suas).
+ *
+ * <p>Cada lote apaga até {@code batch-size} seleções, com os deltas, num comando próprio; uma execução
+ * para no primeiro lote incompleto ou depois de {@code max-batches}. As seleções só são removidas
+ * {@code grace-period} depois de expirar, para não sumirem no meio de uma requisição que já as leu.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "selection.reaper.enabled", matchIfMissing = true)
+public class SelectionReaper {
+
+  @Autowired
+  private SelectionRepository selectionRepository;
+
+  @Autowired
+  private SelectionMetrics selectionMetrics;
+
+  @Value("${selection.reaper.batch-size:500}")
+  private int batchSize = 500;
+
+  @Value("${selection.reaper.max-batches:100}")
+  private int maxBatches = 100;
+
+  @Value("${selection.reaper.grace-period:PT5M}")
+  private Duration gracePeriod = Duration.ofMinutes(5);
+
+  @Scheduled(fixedDelayString = "${selection.reaper.interval:PT1M}")
+  public void reap() {
+    Instant expiredBefore = Instant.now().minus(gracePeriod);
+    long reclaimed = 0;
+
+    for (int batch = 0; batch < maxBatches; batch++) {
+      long start = System.nanoTime();
+      int deleted;
+      try {
+        deleted = selectionRepository.deleteExpired(expiredBefore, batchSize);
+      } catch (DataAccessException e) {
+        log.warn("Falha ao remover seleções expiradas; nova tentativa na próxima execução", e);
+        break;
+      }
+      selectionMetrics.reaped(deleted, System.nanoTime() - start);
+      reclaimed += deleted;
+      if (deleted < batchSize) {
+        break;
+      }
+    }
+
+    if (reclaimed > 0) {
+      log.info("{} seleções expiradas removidas (expiradas antes de {})", reclaimed, expiredBefore);
+    }
+  }
+
+}
@@ -1,30 +1,40 @@
 package com.example.paymentselection.service;
 
-import static com.example.paymentselection.repository.spec.PaymentSpecifications.statusEquals;
-import static com.example.paymentselection.repository.spec.PaymentSpecifications.vencimentoLte;
-
+import com.example.paymentselection.config.ReadYourWrites;
 import com.example.paymentselection.dto.ApplySelectionRequest;
 import com.example.paymentselection.dto.CreateSelectionRequest;
+import com.example.paymentselection.dto.SelectionOperation;
 import com.example.paymentselection.dto.SelectionResponse;
 import com.example.paymentselection.dto.UpdateSelectionRequest;
-import com.example.paymentselection.entity.Payment;
+import com.example.paymentselection.entity.ApplyJob;
 import com.example.paymentselection.entity.Selection;
-import com.example.paymentselection.enums.Action;
+import com.example.paymentselection.enums.DeltaOperation;
 import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.enums.SelectionOperationType;
 import com.example.paymentselection.repository.PaymentRepository;
 import com.example.paymentselection.repository.SelectionRepository;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import com.example.paymentselection.util.BitmapUtils;
 import com.example.paymentselection.util.JsonUtils;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import org.apache.logging.log4j.util.Strings;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Serviço para gerenciamento de seleções de pagamentos.
@@ -38,178 +48,388 @@ public class SelectionService {
   @Autowired
   private PaymentRepository paymentRepository;
 
+  @Autowired
+  private SelectionDeltaService selectionDeltaService;
+
+  @Autowired
+  private SelectionCache selectionCache;
+
+  @Autowired
+  private PaymentCountCache paymentCountCache;
+
+  @Autowired
+  private ApplyJobService applyJobService;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private SelectionMetrics selectionMetrics;
+
+  @Autowired
+  private ReadYourWrites readYourWrites;
+
+  @Value("${selection.update.max-attempts:5}")
+  private int maxUpdateAttempts = 5;
+
+  private static final int MATCH_BATCH_SIZE = 10_000;
+
+  private static final int UPDATE_LOCK_STRIPES = 64;
+
+  /**
+   * Travas por faixa de seleções: PATCHes da mesma seleção neste nó esperam a vez, sem conexão, em vez de
+   * disputarem a versão.
+   */
+  private final ReentrantLock[] updateLocks = Stream.generate(ReentrantLock::new)
+      .limit(UPDATE_LOCK_STRIPES)
+      .toArray(ReentrantLock[]::new);
+
   /**
    * Cria uma nova sessão de seleção.
    */
   @Transactional
   public SelectionResponse create(CreateSelectionRequest request, UUID userId) {
+    SelectionMetrics.Sample sample = selectionMetrics.start("create");
+    sample.mode(request.mode());
+    try {
+      SelectionResponse response = doCreate(request, userId);
+      readYourWrites.markWritten(userId);
+      sample.success();
+      return response;
+    } finally {
+      sample.stop();
+    }
+  }
+
+  private SelectionResponse doCreate(CreateSelectionRequest request, UUID userId) {
     Selection selection = new Selection();
     selection.setId(UUID.randomUUID());
     selection.setUserId(userId);
     selection.setMode(request.mode());
     selection.setFilterJson(JsonUtils.toJson(request.filter()));
-    selection.setIncludeIds("[]");
-    selection.setExcludeIds("[]");
+    selection.setIncludeBitmap(BitmapUtils.toBytes(new Roaring64NavigableMap()));
+    selection.setExcludeBitmap(BitmapUtils.toBytes(new Roaring64NavigableMap()));
     selection.setVersion(0);
+    selection.setSnapshotVersion(0);
     selection.setCreatedAt(Instant.now());
     selection.setExpiresAt(Instant.now().plus(Duration.ofHours(4)));
 
+    // Contagem completa apenas na criação; os PATCHs seguintes ajustam o valor incrementalmente
+    long count = request.mode() == Mode.ALL ? countByFilter(PaymentFilter.of(request.filter())) : 0;
+    selection.setSelectedCount(count);
+
     selectionRepository.save(selection);
+    selectionCache.put(CachedSelection.of(selection, SelectionState.empty(request.mode()), count));
 
-    long count = countByFilter(request.filter());
     return new SelectionResponse(selection.getId(), count);
   }
 
   /**
    * Atualiza uma sessão de seleção.
+   *
+   * <p>Incluir e excluir IDs são operações de conjunto que comutam: PATCHes concorrentes da mesma seleção
+   * são serializados neste nó e, se outro nó avançar a versão antes, o PATCH é reaplicado sobre o estado
+   * novo, em nova transação, até {@code selection.update.max-attempts} vezes. Uma troca de modo reaplicada
+   * vale como a última alteração.
    */
-  @Transactional
   public SelectionResponse update(UUID id, UUID userId, UpdateSelectionRequest request) {
-    Selection selection = selectionRepository.findByIdAndUserId(id, userId) //
-        .orElseThrow(() -> new RuntimeException("Seleção não encontrada"));
+    return update(id, userId, operations(request), selectionMetrics.start("update"));
+  }
 
-    // Mudança de modo (pode ser enviado "ALL" para selecionar todos ou "NONE" para desmarcar todos)
-    if (request.mode() != null) {
-      selection.setMode(request.mode());
-      selection.setIncludeIds("[]");
-      selection.setExcludeIds("[]");
-    }
-
-    // Inclui IDs se estiver em modo NONE (selecionar página ou registros individuais)
-    if (request.includeIds() != null && !request.includeIds().isEmpty()) {
-      if (selection.getMode() == Mode.NONE) {
-        selection.setIncludeIds(JsonUtils.mergeJsonArray(selection.getIncludeIds(), request.includeIds()));
-      } else if (selection.getMode() == Mode.ALL) {
-        // Se estamos em modo ALL e queremos incluir IDs, na verdade estamos removendo da lista de exclusão
-        selection.setExcludeIds(JsonUtils.removeFromJsonArray(selection.getExcludeIds(), request.includeIds()));
+  /**
+   * Aplica, em ordem, as operações de um PATCH em lote como uma única atualização: uma leitura da seleção,
+   * uma consulta do filtro para todos os IDs tocados, um avanço de versão e no máximo dois deltas.
+   */
+  public SelectionResponse updateBatch(UUID id, UUID userId, List<SelectionOperation> operations) {
+    selectionMetrics.batchOperations(operations.size());
+    return update(id, userId, operations, selectionMetrics.start("batch"));
+  }
+
+  private SelectionResponse update(UUID id, UUID userId, List<SelectionOperation> operations,
+      SelectionMetrics.Sample sample) {
+    try {
+      SelectionResponse response = updateWithRetry(id, userId, operations, sample);
+      readYourWrites.markWritten(userId);
+      sample.success();
+      return response;
+    } finally {
+      sample.stop();
+    }
+  }
+
+  private SelectionResponse updateWithRetry(UUID id, UUID userId, List<SelectionOperation> operations,
+      SelectionMetrics.Sample sample) {
+    ReentrantLock lock = updateLocks[Math.floorMod(id.hashCode(), UPDATE_LOCK_STRIPES)];
+    lock.lock();
+    try {
+      for (int attempt = 1; ; attempt++) {
+        try {
+          return transactionTemplate.execute(status -> doUpdate(id, userId, operations, sample));
+        } catch (ConcurrencyFailureException e) {
+          // A versão só é conferida depois do commit concorrente: a nova tentativa já lê o estado dele
+          if (attempt >= maxUpdateAttempts) {
+            throw e;
+          }
+        }
       }
+    } finally {
+      lock.unlock();
     }
+  }
 
-    // Exclui IDs se estiver em modo ALL (desmarcar página ou registros individuais)
-    if (request.excludeIds() != null && !request.excludeIds().isEmpty()) {
-      if (selection.getMode() == Mode.ALL) {
-        selection.setExcludeIds(JsonUtils.mergeJsonArray(selection.getExcludeIds(), request.excludeIds()));
-      } else if (selection.getMode() == Mode.NONE) {
-        // Se estamos em modo NONE e queremos excluir IDs, na verdade estamos removendo da lista de inclusão
-        selection.setIncludeIds(JsonUtils.removeFromJsonArray(selection.getIncludeIds(), request.excludeIds()));
+  private SelectionResponse doUpdate(UUID id, UUID userId, List<SelectionOperation> operations,
+      SelectionMetrics.Sample sample) {
+    CachedSelection current = loadSelection(id, userId);
+
+    // Mudança de modo (pode ser enviado "ALL" para selecionar todos ou "NONE" para desmarcar todos):
+    // só a última vale, e as operações anteriores a ela são descartadas
+    Mode mode = null;
+    int first = 0;
+    for (int i = 0; i < operations.size(); i++) {
+      if (operations.get(i).type() == SelectionOperationType.MODE) {
+        mode = operations.get(i).mode();
+        first = i + 1;
       }
     }
 
-    selection.setVersion(selection.getVersion() + 1);
-    selectionRepository.save(selection);
+    SelectionState state;
+    long count;
+    if (mode != null) {
+      state = SelectionState.empty(mode);
+      count = mode == Mode.ALL ? countByFilter(current.filter()) : 0;
+    } else {
+      state = current.state().copy();
+      count = current.selectedCount();
+    }
+    sample.mode(state.getMode());
+
+    // Efeito líquido das operações: cada ID fica com a última operação que o tocou
+    Roaring64NavigableMap includeIds = new Roaring64NavigableMap();
+    Roaring64NavigableMap excludeIds = new Roaring64NavigableMap();
+    for (SelectionOperation operation : operations.subList(first, operations.size())) {
+      Roaring64NavigableMap ids = operationIds(current.filter(), operation);
+      if (operation.type().deltaOperation() == DeltaOperation.SELECT) {
+        includeIds.or(ids);
+        excludeIds.andNot(ids);
+      } else {
+        excludeIds.or(ids);
+        includeIds.andNot(ids);
+      }
+    }
+    selectionMetrics.patchIds(state.getMode(), includeIds.getLongCardinality(), excludeIds.getLongCardinality());
+
+    // Somente os IDs tocados pelo PATCH são consultados, pela chave primária
+    Roaring64NavigableMap touched = BitmapUtils.copy(includeIds);
+    touched.or(excludeIds);
+    Roaring64NavigableMap matching = matchingIds(current.filter(), touched);
+
+    // Marca IDs (inclui em modo NONE, remove da exclusão em modo ALL)
+    count += state.countChange(DeltaOperation.SELECT, includeIds, matching);
+    state.apply(DeltaOperation.SELECT, includeIds);
+
+    // Desmarca IDs (exclui em modo ALL, remove da inclusão em modo NONE)
+    count += state.countChange(DeltaOperation.DESELECT, excludeIds, matching);
+    state.apply(DeltaOperation.DESELECT, excludeIds);
+
+    try {
+      if (mode != null) {
+        selectionDeltaService.reset(id, current.version(), mode, count);
+      } else {
+        selectionDeltaService.nextVersion(id, current.version(), count);
+      }
+    } catch (ConcurrencyFailureException e) {
+      // Outra atualização (ou outro nó) avançou a versão: o estado em cache está desatualizado
+      selectionCache.invalidate(id, userId);
+      requireExists(id);
+      selectionMetrics.conflict("update", state.getMode());
+      throw e;
+    }
+    int version = current.version() + 1;
 
-    long count = recalculateCount(selection);
-    return new SelectionResponse(selection.getId(), count);
+    if (!includeIds.isEmpty()) {
+      selectionDeltaService.append(id, version, DeltaOperation.SELECT, includeIds);
+    }
+    if (!excludeIds.isEmpty()) {
+      selectionDeltaService.append(id, version, DeltaOperation.DESELECT, excludeIds);
+    }
+
+    selectionCache.put(current.withState(version, state, count));
+
+    return new SelectionResponse(id, count);
   }
 
   /**
-   * Aplica a ação em lote.
+   * Operações equivalentes a um PATCH simples: troca de modo, depois inclusões, depois exclusões.
    */
-  @Transactional
-  public void apply(UUID id, UUID userId, ApplySelectionRequest request) {
-    Selection selection = selectionRepository.findByIdAndUserId(id, userId)
-        .orElseThrow(() -> new RuntimeException("Seleção não encontrada"));
-
-    if (request.action() == Action.PAY) {
-      applyPayments(selection);
-    } else if (request.action() == Action.CANCEL) {
-      applyCancellations(selection);
+  private static List<SelectionOperation> operations(UpdateSelectionRequest request) {
+    List<SelectionOperation> operations = new ArrayList<>();
+    if (request.mode() != null) {
+      operations.add(SelectionOperation.mode(request.mode()));
     }
-
-    selectionRepository.delete(selection);
+    if (request.includeIds() != null || request.includeBitmap() != null) {
+      operations.add(SelectionOperation.include(request.includeIds(), request.includeBitmap()));
+    }
+    if (request.excludeIds() != null || request.excludeBitmap() != null) {
+      operations.add(SelectionOperation.exclude(request.excludeIds(), request.excludeBitmap()));
+    }
+    return operations;
   }
 
   /**
-   * Aplica pagamentos em lote.
+   * IDs de uma operação: os informados (lista e/ou bitmap) ou os da página da busca, no filtro da seleção.
    */
-  private void applyPayments(Selection selection) {
-    Map<String, Object> filter = JsonUtils.fromJson(selection.getFilterJson());
-    List<Long> excluded = JsonUtils.fromJsonArray(selection.getExcludeIds());
-    List<Long> included = JsonUtils.fromJsonArray(selection.getIncludeIds());
-
-    String status = (String) filter.get("status");
-    LocalDate vencimentoAte = filter.get("vencimentoAte") != null ?
-        LocalDate.parse((String) filter.get("vencimentoAte")) : null;
-
-    if (selection.getMode() == Mode.ALL) {
-      // Atualiza todos que se enquadram no filtro menos os excluídos
-      paymentRepository.bulkUpdateByFilter(status, vencimentoAte);
-    } else {
-      // Atualiza apenas os incluídos
-      if (!included.isEmpty()) {
-        paymentRepository.bulkUpdateByIds(included);
-      }
+  private Roaring64NavigableMap operationIds(PaymentFilter filter, SelectionOperation operation) {
+    if (operation.type().page()) {
+      return BitmapUtils.of(paymentRepository.findIdsPage(filter.status(), filter.vencimentoAte(),
+          PageRequest.of(operation.page(), operation.size())));
+    }
+    return union(operation.ids(), operation.bitmap());
+  }
+
+  private static Roaring64NavigableMap union(List<Long> ids, Roaring64NavigableMap bitmap) {
+    Roaring64NavigableMap union = BitmapUtils.of(ids);
+    if (bitmap != null) {
+      union.or(bitmap);
     }
+    return union;
   }
 
   /**
-   * Aplica cancelamentos em lote.
+   * Aplica a ação em lote.
+   *
+   * <p>Consome a seleção e registra um job com uma cópia do seu estado numa transação curta; os
+   * pagamentos são atualizados em segundo plano pelo {@link ApplyJobService}, em lotes com checkpoint.
+   * Retorna o ID do job, para acompanhamento.
    */
-  private void applyCancellations(Selection selection) {
-    Map<String, Object> filter = JsonUtils.fromJson(selection.getFilterJson());
-    List<Long> excluded = JsonUtils.fromJsonArray(selection.getExcludeIds());
-    List<Long> included = JsonUtils.fromJsonArray(selection.getIncludeIds());
+  public UUID apply(UUID id, UUID userId, ApplySelectionRequest request) {
+    SelectionMetrics.Sample sample = selectionMetrics.start("apply");
+    sample.action(request.action());
+    try {
+      UUID jobId = doApply(id, userId, request, sample);
+      readYourWrites.markWritten(userId);
+      sample.success();
+      return jobId;
+    } finally {
+      sample.stop();
+    }
+  }
 
-    LocalDate vencimentoAte = filter.get("vencimentoAte") != null ?
-        LocalDate.parse((String) filter.get("vencimentoAte")) : null;
+  private UUID doApply(UUID id, UUID userId, ApplySelectionRequest request, SelectionMetrics.Sample sample) {
+    UUID jobId = transactionTemplate.execute(status -> {
+      CachedSelection current = loadSelection(id, userId);
+      sample.mode(current.state().getMode());
+
+      try {
+        // Garante que o estado lido ainda é o da versão atual e bloqueia novas alterações até o commit
+        selectionDeltaService.nextVersion(id, current.version());
+      } catch (ObjectOptimisticLockingFailureException e) {
+        requireExists(id);
+        selectionMetrics.conflict("apply", current.state().getMode());
+        throw e;
+      } finally {
+        selectionCache.invalidate(id, userId);
+      }
 
-    if (selection.getMode() == Mode.ALL) {
-      // Cancela todos que se enquadram no filtro menos os excluídos
-      paymentRepository.bulkCancelByFilter(vencimentoAte);
-    } else {
-      // Cancela apenas os incluídos
-      if (!included.isEmpty()) {
-        paymentRepository.bulkCancelByIds(included);
+      CachedSelection selection = current;
+      Roaring64NavigableMap paymentIds = union(request.paymentIds(), request.paymentBitmap());
+      if (!paymentIds.isEmpty()) {
+        // IDs marcados no frontend e ainda não enviados por PATCH; como no PATCH, só contam (e, aqui, só são
+        // aplicados) os que atendem ao filtro da seleção
+        Roaring64NavigableMap matching = matchingIds(current.filter(), paymentIds);
+        SelectionState state = current.state().copy();
+        long count = current.selectedCount() + state.countChange(DeltaOperation.SELECT, matching, matching);
+        state.apply(DeltaOperation.SELECT, matching);
+        selection = current.withState(current.version(), state, count);
       }
+
+      ApplyJob job = applyJobService.create(selection, request.action());
+
+      selectionDeltaService.deleteAll(id);
+      selectionRepository.deleteSelectionById(id);
+      return job.getId();
+    });
+
+    applyJobService.submit(jobId);
+    return jobId;
+  }
+
+  /**
+   * Versão não avançada: se a seleção foi removida (apply ou expiração) enquanto estava no cache, responde
+   * 404 em vez de tratar como conflito e tentar de novo.
+   */
+  private void requireExists(UUID id) {
+    if (!selectionRepository.existsById(id)) {
+      throw new SelectionNotFoundException();
     }
   }
 
   /**
-   * Conta itens que atendem ao filtro.
+   * Busca o estado decodificado da seleção no cache ou, se ausente, no banco (snapshot + deltas).
    */
-  private long countByFilter(Map<String, Object> filter) {
-    String status = asText(filter.get("status"));
-    LocalDate vencimentoAte = asLocalDate(filter.get("vencimentoAte"));
+  CachedSelection loadSelection(UUID id, UUID userId) {
+    CachedSelection cached = selectionCache.get(id, userId);
+    if (cached != null) {
+      return cached;
+    }
 
-    Specification<Payment> spec = Specification
-        .where(statusEquals(status))
-        .and(vencimentoLte(vencimentoAte));
+    Selection selection = selectionRepository.findByIdAndUserId(id, userId)
+        .orElseThrow(SelectionNotFoundException::new);
+    SelectionState state = selectionDeltaService.load(id);
 
-    return paymentRepository.count(spec);
+    Long selectedCount = selection.getSelectedCount();
+    if (selectedCount == null) {
+      // Seleção criada antes da contagem incremental: calcula uma única vez
+      selectedCount = recalculateCount(PaymentFilter.of(JsonUtils.fromJson(selection.getFilterJson())), state);
+    }
+    return CachedSelection.of(selection, state, selectedCount);
   }
 
   /**
-   * Recalcula a contagem de itens selecionados.
+   * Conta itens que atendem ao filtro (reaproveitando a contagem enquanto a tabela não mudar).
    */
-  private long recalculateCount(Selection selection) {
-    Map<String, Object> filter = JsonUtils.fromJson(selection.getFilterJson());
-    long totalFiltered = countByFilter(filter);
+  private long countByFilter(PaymentFilter filter) {
+    long start = System.nanoTime();
+    AtomicBoolean queried = new AtomicBoolean();
+    long count = paymentCountCache.count(filter, f -> {
+      queried.set(true);
+      return paymentRepository.count(f.toSpecification());
+    });
+    // Só o modo ALL depende da contagem total do filtro
+    selectionMetrics.countByFilter(Mode.ALL, !queried.get(), System.nanoTime() - start);
+    return count;
+  }
 
-    List<Long> excluded = JsonUtils.fromJsonArray(selection.getExcludeIds());
-    List<Long> included = JsonUtils.fromJsonArray(selection.getIncludeIds());
+  /**
+   * Dentre os IDs informados, retorna os que atendem ao filtro. O bitmap é percorrido direto para arrays
+   * primitivos de até {@code MATCH_BATCH_SIZE} IDs, cada um enviado num único parâmetro: o comando tem o
+   * mesmo texto em todos os lotes.
+   */
+  private Roaring64NavigableMap matchingIds(PaymentFilter filter, Roaring64NavigableMap ids) {
+    Roaring64NavigableMap matching = new Roaring64NavigableMap();
+    LongIterator iterator = ids.getLongIterator();
+    long[] batch = new long[(int) Math.min(ids.getLongCardinality(), MATCH_BATCH_SIZE)];
+    while (iterator.hasNext()) {
+      int size = 0;
+      while (size < batch.length && iterator.hasNext()) {
+        batch[size++] = iterator.next();
+      }
+      paymentRepository.findIdsMatchingFilter(size == batch.length ? batch : Arrays.copyOf(batch, size), filter)
+          .forEach(matching::addLong);
+    }
+    return matching;
+  }
 
-    if (selection.getMode() == Mode.ALL) {
+  /**
+   * Recalcula do zero a contagem de itens selecionados, considerando apenas IDs que atendem ao filtro.
+   */
+  private long recalculateCount(PaymentFilter filter, SelectionState state) {
+    if (state.getMode() == Mode.ALL) {
       // Todos menos os excluídos
-      return totalFiltered - excluded.size();
+      return countByFilter(filter) - matchingIds(filter, state.getExcluded()).getLongCardinality();
     } else {
       // Apenas os incluídos
-      return included.size();
+      return matchingIds(filter, state.getIncluded()).getLongCardinality();
     }
   }
 
-  private static String asText(Object v) {
-    if (v instanceof String s) {
-      s = s.trim();
-      return s.isEmpty() ? null : s;
-    }
-    return null;
-  }
-
-  private static LocalDate asLocalDate(Object v) {
-    if (v == null) return null;
-    String s = v.toString().trim();
-    return s.isEmpty() ? null : LocalDate.parse(s); // espere "yyyy-MM-dd"
-  }
-
 }
-
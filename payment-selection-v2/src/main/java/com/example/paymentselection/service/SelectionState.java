@@ -0,0 +1,104 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.enums.DeltaOperation;
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.repository.projection.SelectionSnapshot;
+import com.example.paymentselection.util.BitmapUtils;
+import lombok.Getter;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+/**
+ * Estado decodificado de uma seleção: modo e conjuntos de IDs incluídos/excluídos.
+ */
+@Getter
+public class SelectionState {
+
+  private final Mode mode;
+  private final Roaring64NavigableMap included;
+  private final Roaring64NavigableMap excluded;
+
+  public SelectionState(Mode mode, Roaring64NavigableMap included, Roaring64NavigableMap excluded) {
+    this.mode = mode;
+    this.included = included;
+    this.excluded = excluded;
+  }
+
+  /**
+   * Estado inicial de um modo: nenhum ID incluído ou excluído.
+   */
+  public static SelectionState empty(Mode mode) {
+    return new SelectionState(mode, new Roaring64NavigableMap(), new Roaring64NavigableMap());
+  }
+
+  /**
+   * Cópia independente do estado, para alterações que ainda dependem de confirmação.
+   */
+  public SelectionState copy() {
+    return new SelectionState(mode, BitmapUtils.copy(included), BitmapUtils.copy(excluded));
+  }
+
+  /**
+   * Memória aproximada ocupada pelos conjuntos de IDs.
+   */
+  public long sizeInBytes() {
+    return included.getLongSizeInBytes() + excluded.getLongSizeInBytes();
+  }
+
+  /**
+   * Decodifica o snapshot; seleções antigas ainda sem bitmap são lidas do array jsonb legado.
+   */
+  public static SelectionState of(SelectionSnapshot snapshot) {
+    Roaring64NavigableMap included = snapshot.includeBitmap() != null
+        ? BitmapUtils.fromBytes(snapshot.includeBitmap())
+        : BitmapUtils.fromJsonArray(snapshot.includeIds());
+    Roaring64NavigableMap excluded = snapshot.excludeBitmap() != null
+        ? BitmapUtils.fromBytes(snapshot.excludeBitmap())
+        : BitmapUtils.fromJsonArray(snapshot.excludeIds());
+    return new SelectionState(snapshot.mode(), included, excluded);
+  }
+
+  /**
+   * Aplica uma operação do log de deltas ao estado.
+   */
+  public void apply(DeltaOperation op, Roaring64NavigableMap ids) {
+    if (op == DeltaOperation.SELECT) {
+      if (mode == Mode.NONE) {
+        included.or(ids);
+      } else {
+        // Em modo ALL, selecionar significa remover da lista de exclusão
+        excluded.andNot(ids);
+      }
+    } else if (op == DeltaOperation.DESELECT) {
+      if (mode == Mode.ALL) {
+        excluded.or(ids);
+      } else {
+        // Em modo NONE, desmarcar significa remover da lista de inclusão
+        included.andNot(ids);
+      }
+    }
+  }
+
+  /**
+   * Variação da contagem de selecionados que {@code op} causaria, considerando apenas os IDs
+   * que mudam de estado e que atendem ao filtro ({@code matching}). Deve ser chamado antes de {@link #apply}.
+   */
+  public long countChange(DeltaOperation op, Roaring64NavigableMap ids, Roaring64NavigableMap matching) {
+    long change = 0;
+    LongIterator it = ids.getLongIterator();
+    while (it.hasNext()) {
+      long id = it.next();
+      if (!matching.contains(id)) {
+        continue;
+      }
+      boolean selected = mode == Mode.NONE ? included.contains(id) : !excluded.contains(id);
+      if (op == DeltaOperation.SELECT && !selected) {
+        change++;
+      } else if (op == DeltaOperation.DESELECT && selected) {
+        change--;
+      }
+    }
+    return change;
+  }
+
+}
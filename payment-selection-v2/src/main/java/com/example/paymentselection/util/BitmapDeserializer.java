@@ -0,0 +1,40 @@
+package com.example.paymentselection.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import java.io.IOException;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+/**
+ * Lê um conjunto de IDs enviado como bitmap Roaring de 64 bits (formato portável, o mesmo gravado no banco)
+ * em Base64: o texto é decodificado direto do buffer do parser, sem {@code List<Long>} intermediária.
+ */
+public class BitmapDeserializer extends StdDeserializer<Roaring64NavigableMap> {
+
+    /**
+     * Limite de IDs por bitmap: poucos bytes de Roaring podem representar bilhões de IDs.
+     */
+    public static final long MAX_IDS = 1_000_000;
+
+    public BitmapDeserializer() {
+        super(Roaring64NavigableMap.class);
+    }
+
+    @Override
+    public Roaring64NavigableMap deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        byte[] bytes = p.getBinaryValue();
+        Roaring64NavigableMap bitmap;
+        try {
+            bitmap = BitmapUtils.fromBytes(bytes);
+        } catch (RuntimeException e) {
+            throw InvalidFormatException.from(p, "Bitmap de IDs inválido", null, Roaring64NavigableMap.class);
+        }
+        if (bitmap.getLongCardinality() > MAX_IDS) {
+            throw InvalidFormatException.from(p, "Bitmap com mais de " + MAX_IDS + " IDs", null,
+                Roaring64NavigableMap.class);
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.paymentselection.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+/**
+ * Classe utilitária para conjuntos de IDs armazenados como bitmaps comprimidos (Roaring).
+ */
+public class BitmapUtils {
+
+    /**
+     * Cria um bitmap a partir de uma coleção de IDs.
+     */
+    public static Roaring64NavigableMap of(Collection<Long> ids) {
+        Roaring64NavigableMap bitmap = new Roaring64NavigableMap();
+        if (ids != null) {
+            for (Long id : ids) {
+                bitmap.addLong(id);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Cria uma cópia independente do bitmap.
+     */
+    public static Roaring64NavigableMap copy(Roaring64NavigableMap bitmap) {
+        Roaring64NavigableMap copy = new Roaring64NavigableMap();
+        copy.or(bitmap);
+        return copy;
+    }
+
+    /**
+     * Desserializa um bitmap (formato portável) lido de uma coluna bytea.
+     */
+    public static Roaring64NavigableMap fromBytes(byte[] bytes) {
+        Roaring64NavigableMap bitmap = new Roaring64NavigableMap();
+        if (bytes == null || bytes.length == 0) {
+            return bitmap;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            bitmap.deserializePortable(in);
+            return bitmap;
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao desserializar bitmap de IDs", e);
+        }
+    }
+
+    /**
+     * Serializa um bitmap (formato portável) para gravação em uma coluna bytea. A compactação em
+     * sequências é feita numa cópia: o bitmap recebido pode ser o estado em cache, compartilhado com
+     * outras requisições, e não é alterado.
+     */
+    public static byte[] toBytes(Roaring64NavigableMap bitmap) {
+        Roaring64NavigableMap optimized = copy(bitmap);
+        optimized.runOptimize();
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) optimized.serializedSizeInBytes());
+             DataOutputStream out = new DataOutputStream(bytes)) {
+            optimized.serializePortable(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao serializar bitmap de IDs", e);
+        }
+    }
+
+    /**
+     * Converte um array JSON legado (coluna jsonb) para bitmap.
+     */
+    public static Roaring64NavigableMap fromJsonArray(String json) {
+        if (json == null || json.isBlank()) {
+            return new Roaring64NavigableMap();
+        }
+        return of(JsonUtils.fromJsonArray(json));
+    }
+
+    /**
+     * Converte o bitmap para uma lista ordenada de IDs.
+     */
+    public static List<Long> toList(Roaring64NavigableMap bitmap) {
+        List<Long> ids = new ArrayList<>((int) bitmap.getLongCardinality());
+        bitmap.forEach(ids::add);
+        return ids;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.paymentselection.util;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.ArrayList;
@@ -37,6 +38,17 @@ public class JsonUtils {
         }
     }
 
+    /**
+     * Lê um JSON arbitrário como árvore.
+     */
+    public static JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Erro ao ler JSON", e);
+        }
+    }
+
     /**
      * Converte JSON string para lista de Long.
      */
@@ -0,0 +1,12 @@
+-- Índice BRIN opcional em payment.vencimento (spring.flyway.placeholders.vencimento-brin): poucas páginas
+-- de índice para filtros por faixa de vencimento em tabelas grandes cujas linhas entram aproximadamente
+-- na ordem do vencimento. Não substitui os índices B-tree, que também atendem à ordenação. Reaplicada
+-- pelo Flyway quando o valor muda.
+DO $$
+BEGIN
+  IF ${vencimento-brin} THEN
+    CREATE INDEX IF NOT EXISTS idx_payment_vencimento_brin ON payment USING brin (vencimento);
+  ELSE
+    DROP INDEX IF EXISTS idx_payment_vencimento_brin;
+  END IF;
+END$$;
@@ -0,0 +1,98 @@
+-- Schema inicial (antes em schema.sql e no ddl-auto do Hibernate). Idempotente: em bancos criados pelo
+-- schema.sql antigo, o Flyway registra a baseline 0 (baseline-on-migrate) e esta migração completa o que falta
+
+-- Tabela de seleções
+CREATE TABLE IF NOT EXISTS selection (
+    id UUID PRIMARY KEY,
+    user_id UUID NOT NULL,
+    mode VARCHAR(10) NOT NULL CHECK (mode IN ('ALL', 'NONE')),
+    filter_json JSONB NOT NULL,
+    include_ids JSONB DEFAULT '[]'::JSONB,
+    exclude_ids JSONB DEFAULT '[]'::JSONB,
+    include_bitmap BYTEA,
+    exclude_bitmap BYTEA,
+    version INTEGER NOT NULL DEFAULT 0,
+    snapshot_version INTEGER NOT NULL DEFAULT 0,
+    selected_count BIGINT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    expires_at TIMESTAMP WITH TIME ZONE
+);
+
+-- Índice para acelerar buscas pela seleção
+CREATE INDEX IF NOT EXISTS idx_selection_user_id ON selection (user_id);
+
+-- Colunas ausentes no schema.sql antigo
+ALTER TABLE selection ADD COLUMN IF NOT EXISTS include_bitmap BYTEA;
+ALTER TABLE selection ADD COLUMN IF NOT EXISTS exclude_bitmap BYTEA;
+ALTER TABLE selection ADD COLUMN IF NOT EXISTS snapshot_version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE selection ADD COLUMN IF NOT EXISTS selected_count BIGINT;
+
+-- Log append-only de alterações da seleção (compactado periodicamente no snapshot)
+CREATE TABLE IF NOT EXISTS selection_delta (
+    id BIGSERIAL PRIMARY KEY,
+    selection_id UUID NOT NULL,
+    version INTEGER NOT NULL,
+    op VARCHAR(10) NOT NULL CHECK (op IN ('SELECT', 'DESELECT')),
+    ids BYTEA NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_selection_delta_selection_id ON selection_delta (selection_id, version);
+
+-- Tabela de pagamentos (exemplo)
+CREATE TABLE IF NOT EXISTS payment (
+    id BIGSERIAL PRIMARY KEY,
+    status VARCHAR(20) NOT NULL DEFAULT 'A_PAGAR',
+    vencimento DATE,
+    valor DECIMAL(10,2),
+    descricao VARCHAR(255),
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(),
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+);
+
+-- Índices para consultas por status e vencimento; também atendem a paginação por cursor,
+-- que ordena por (vencimento, id)
+CREATE INDEX IF NOT EXISTS idx_payment_status_vencimento_id ON payment (status, vencimento, id);
+CREATE INDEX IF NOT EXISTS idx_payment_vencimento_id ON payment (vencimento, id);
+
+-- Jobs de aplicação em lote: cópia do estado da seleção e total já aplicado
+CREATE TABLE IF NOT EXISTS apply_job (
+    id UUID PRIMARY KEY,
+    selection_id UUID NOT NULL,
+    user_id UUID NOT NULL,
+    action VARCHAR(10) NOT NULL CHECK (action IN ('PAY', 'CANCEL')),
+    mode VARCHAR(10) NOT NULL CHECK (mode IN ('ALL', 'NONE')),
+    filter_status VARCHAR(255),
+    filter_vencimento_ate DATE,
+    ids BYTEA NOT NULL,
+    max_id BIGINT NOT NULL,
+    partitions INTEGER NOT NULL DEFAULT 1,
+    status VARCHAR(10) NOT NULL CHECK (status IN ('PENDING', 'RUNNING', 'COMPLETED', 'FAILED')),
+    chunks INTEGER NOT NULL DEFAULT 0,
+    rows_affected BIGINT NOT NULL DEFAULT 0,
+    owner VARCHAR(100),
+    heartbeat_at TIMESTAMP WITH TIME ZONE,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    started_at TIMESTAMP WITH TIME ZONE,
+    finished_at TIMESTAMP WITH TIME ZONE,
+    error VARCHAR(1000)
+);
+
+-- Localiza jobs interrompidos (heartbeat expirado) para retomada
+CREATE INDEX IF NOT EXISTS idx_apply_job_status_heartbeat ON apply_job (status, heartbeat_at);
+
+-- Faixas de ids (from_id, to_id] de cada job, aplicadas em paralelo, com o checkpoint do último lote confirmado
+CREATE TABLE IF NOT EXISTS apply_job_partition (
+    id BIGSERIAL PRIMARY KEY,
+    job_id UUID NOT NULL,
+    partition_no INTEGER NOT NULL,
+    from_id BIGINT NOT NULL,
+    to_id BIGINT NOT NULL,
+    last_id BIGINT NOT NULL,
+    status VARCHAR(10) NOT NULL CHECK (status IN ('PENDING', 'RUNNING', 'COMPLETED', 'FAILED')),
+    chunk_size INTEGER NOT NULL,
+    chunks INTEGER NOT NULL DEFAULT 0,
+    rows_affected BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_apply_job_partition_job_id ON apply_job_partition (job_id, partition_no);
@@ -0,0 +1,14 @@
+-- Índices ajustados ao formato das consultas. Criados com CONCURRENTLY, sem bloquear as escritas;
+-- por isso o Flyway executa esta migração fora de transação.
+
+-- Páginas filtradas por status e ordenadas por id (GET /api/payments/search?status=...); o filtro de
+-- vencimento, quando houver, é aplicado durante a varredura
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payment_status_id ON payment (status, id);
+
+-- Pagamentos em aberto, o conjunto de trabalho das seleções: paginação por cursor e contagens com
+-- status = 'A_PAGAR' (e vencimento <= ?) leem só as linhas em aberto, sem o histórico já pago
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payment_a_pagar_vencimento_id ON payment (vencimento, id)
+    WHERE status = 'A_PAGAR';
+
+-- Seleções por expiração (contagem das seleções vivas)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_selection_expires_at ON selection (expires_at);
@@ -0,0 +1,3 @@
+-- Linhas previstas do job (contagem da seleção no apply), para estimar o tempo restante do progresso;
+-- nula nos jobs criados antes desta migração
+ALTER TABLE apply_job ADD COLUMN estimated_rows BIGINT;
@@ -0,0 +1,70 @@
+package com.example.paymentselection.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GatedDataSourceTest {
+
+    @Mock
+    private DataSource target;
+
+    @Mock
+    private Connection connection;
+
+    @Test
+    void testCloseReleasesPermitOnce() throws SQLException {
+        // Arrange
+        when(target.getConnection()).thenReturn(connection);
+        GatedDataSource gate = new GatedDataSource(target, 1, Duration.ofMillis(50));
+
+        // Act
+        Connection first = gate.getConnection();
+        first.close();
+        first.close();
+        Connection second = gate.getConnection();
+
+        // Assert
+        assertEquals(0, gate.available());
+        assertSame(connection, second.unwrap(Connection.class));
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    void testGetConnectionTimesOutWhenAllPermitsAreInUse() throws SQLException {
+        // Arrange
+        when(target.getConnection()).thenReturn(connection);
+        GatedDataSource gate = new GatedDataSource(target, 1, Duration.ofMillis(50));
+        gate.getConnection();
+
+        // Act & Assert
+        assertThrows(SQLTransientConnectionException.class, gate::getConnection);
+        verify(target, times(1)).getConnection();
+    }
+
+    @Test
+    void testFailedAcquisitionFromPoolReleasesPermit() throws SQLException {
+        // Arrange
+        when(target.getConnection()).thenThrow(new SQLException("pool")).thenReturn(connection);
+        GatedDataSource gate = new GatedDataSource(target, 1, Duration.ofMillis(50));
+
+        // Act
+        assertThrows(SQLException.class, gate::getConnection);
+        Connection connection = gate.getConnection();
+
+        // Assert
+        assertNotNull(connection);
+        assertEquals(0, gate.available());
+    }
+}
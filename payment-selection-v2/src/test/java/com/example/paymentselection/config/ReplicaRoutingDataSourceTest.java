@@ -0,0 +1,138 @@
+package com.example.paymentselection.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        routing = new ReplicaRoutingDataSource(primary,
+            List.of(new ReplicaRoutingDataSource.Replica("replica-0", replica)), Duration.ofSeconds(5), "SELECT 0");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.requirePrimary(false);
+    }
+
+    @Test
+    void testReadOnlyConnectionsGoToReplicaAfterCheck() throws SQLException {
+        // Arrange
+        Connection check = lagCheck(0.5);
+        when(replica.getConnection()).thenReturn(check, replicaConnection);
+        routing.checkReplicas();
+
+        // Act
+        Connection read = physical(true);
+        Connection write = physical(false);
+
+        // Assert
+        assertEquals(Duration.ofMillis(500), routing.replicas().get(0).lag());
+        assertSame(replicaConnection, read);
+        assertSame(primaryConnection, write);
+    }
+
+    @Test
+    void testReadsStayOnPrimaryUntilReplicaIsCheckedAndWithinMaxLag() throws SQLException {
+        // Arrange
+        Connection check = lagCheck(30);
+        when(replica.getConnection()).thenReturn(check);
+
+        // Act
+        Connection beforeCheck = physical(true);
+        routing.checkReplicas();
+        Connection lagging = physical(true);
+
+        // Assert
+        assertSame(primaryConnection, beforeCheck);
+        assertSame(primaryConnection, lagging);
+        verify(replica, times(1)).getConnection();
+    }
+
+    @Test
+    void testReadFallsBackToPrimaryWhenReplicaRefusesConnection() throws SQLException {
+        // Arrange
+        Connection check = lagCheck(0);
+        when(replica.getConnection()).thenReturn(check).thenThrow(new SQLException("replica down"));
+        routing.checkReplicas();
+
+        // Act
+        Connection first = physical(true);
+        Connection second = physical(true);
+
+        // Assert
+        assertSame(primaryConnection, first);
+        assertSame(primaryConnection, second);
+        assertNull(routing.replicas().get(0).lag());
+        verify(replica, times(2)).getConnection();
+    }
+
+    @Test
+    void testReadYourWritesKeepsReadsOnPrimary() throws SQLException {
+        // Arrange
+        Connection check = lagCheck(0);
+        when(replica.getConnection()).thenReturn(check);
+        routing.checkReplicas();
+        ReadYourWrites.requirePrimary(true);
+
+        // Act
+        Connection read = physical(true);
+
+        // Assert
+        assertSame(primaryConnection, read);
+        verify(replica, times(1)).getConnection();
+    }
+
+    /**
+     * Conexão física usada por uma transação somente leitura ou de escrita.
+     */
+    private Connection physical(boolean readOnly) throws SQLException {
+        Connection connection = routing.getConnection();
+        connection.setReadOnly(readOnly);
+        return ((ConnectionProxy) connection).getTargetConnection();
+    }
+
+    private Connection lagCheck(double seconds) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SELECT 0")).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(seconds);
+        return connection;
+    }
+}
@@ -1,22 +1,35 @@
 package com.example.paymentselection.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.example.paymentselection.dto.CreateSelectionRequest;
 import com.example.paymentselection.dto.SelectionResponse;
+import com.example.paymentselection.dto.UpdateSelectionRequest;
 import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.service.SelectionExportService;
 import com.example.paymentselection.service.SelectionService;
 import com.example.paymentselection.service.UserService;
+import com.example.paymentselection.util.BitmapDeserializer;
+import com.example.paymentselection.util.BitmapUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
@@ -35,6 +48,9 @@ class SelectionControllerTest {
   @MockitoBean
   private UserService userService;
 
+  @MockitoBean
+  private SelectionExportService selectionExportService;
+
   @Autowired
   private ObjectMapper objectMapper;
 
@@ -82,13 +98,94 @@ class SelectionControllerTest {
         .andExpect(jsonPath("$.selectedCount").value(15));
   }
 
+  @Test
+  void testUpdateSelectionWithBitmaps() throws Exception {
+    // Arrange
+    UUID userId = UUID.randomUUID();
+    UUID selectionId = UUID.randomUUID();
+
+    when(userService.getCurrentUserId()).thenReturn(userId);
+    when(selectionService.update(eq(selectionId), eq(userId), any()))
+        .thenReturn(new SelectionResponse(selectionId, 3L));
+
+    String bitmap = Base64.getEncoder().encodeToString(BitmapUtils.toBytes(BitmapUtils.of(List.of(1L, 2L, 300_000L))));
+    String requestBody = "{\"includeIds\":[4],\"includeBitmap\":\"" + bitmap + "\"}";
+
+    // Act & Assert
+    mockMvc.perform(patch("/selections/" + selectionId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(requestBody))
+        .andExpect(status().isOk());
+    mockMvc.perform(patch("/selections/" + selectionId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"excludeBitmap\":\"AAAA\"}"))
+        .andExpect(status().isBadRequest());
+
+    ArgumentCaptor<UpdateSelectionRequest> request = ArgumentCaptor.forClass(UpdateSelectionRequest.class);
+    verify(selectionService).update(eq(selectionId), eq(userId), request.capture());
+    assertEquals(List.of(4L), request.getValue().includeIds());
+    assertEquals(List.of(1L, 2L, 300_000L), BitmapUtils.toList(request.getValue().includeBitmap()));
+  }
+
+  @Test
+  void testUpdateSelectionBatch() throws Exception {
+    // Arrange
+    UUID userId = UUID.randomUUID();
+    UUID selectionId = UUID.randomUUID();
+
+    when(userService.getCurrentUserId()).thenReturn(userId);
+    when(selectionService.updateBatch(eq(selectionId), eq(userId), any()))
+        .thenReturn(new SelectionResponse(selectionId, 3L));
+
+    String requestBody = """
+        {"operations": [
+          {"type": "INCLUDE", "ids": [1, 2]},
+          {"type": "SELECT_PAGE", "page": 0, "size": 50}
+        ]}""";
+    String invalidBody = """
+        {"operations": [{"type": "INCLUDE", "ids": [1]}, {"type": "DESELECT_PAGE", "page": 0}]}""";
+
+    // Act & Assert
+    mockMvc.perform(patch("/selections/" + selectionId + "/operations")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(requestBody))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.selectedCount").value(3));
+    mockMvc.perform(patch("/selections/" + selectionId + "/operations")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(invalidBody))
+        .andExpect(status().isBadRequest());
+    verify(selectionService, times(1)).updateBatch(any(), any(), any());
+  }
+
+  @Test
+  void testUpdateSelectionBatchOverTotalIdLimitIsRejected() throws Exception {
+    // Arrange: cada bitmap está no limite por bitmap, mas três deles passam do limite da requisição
+    UUID selectionId = UUID.randomUUID();
+    Roaring64NavigableMap full = new Roaring64NavigableMap();
+    full.addRange(1, BitmapDeserializer.MAX_IDS + 1);
+    String bitmap = Base64.getEncoder().encodeToString(BitmapUtils.toBytes(full));
+    String operation = "{\"type\": \"INCLUDE\", \"bitmap\": \"" + bitmap + "\"}";
+    String requestBody = "{\"operations\": [" + String.join(",", operation, operation, operation) + "]}";
+
+    // Act & Assert
+    mockMvc.perform(patch("/selections/" + selectionId + "/operations")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(requestBody))
+        .andExpect(status().isBadRequest())
+        .andExpect(status().reason("As operações tocam mais de 2000000 IDs no total"));
+    verify(selectionService, never()).updateBatch(any(), any(), any());
+  }
+
   @Test
   void testApplySelection() throws Exception {
     // Arrange
     UUID userId = UUID.randomUUID();
     UUID selectionId = UUID.randomUUID();
+    UUID jobId = UUID.randomUUID();
 
     when(userService.getCurrentUserId()).thenReturn(userId);
+    when(selectionService.apply(eq(selectionId), eq(userId), any())).thenReturn(jobId);
 
     String requestBody = "{\"action\":\"PAY\"}";
 
@@ -96,7 +193,9 @@ class SelectionControllerTest {
     mockMvc.perform(post("/selections/" + selectionId + "/apply")
             .contentType(MediaType.APPLICATION_JSON)
             .content(requestBody))
-        .andExpect(status().isOk());
+        .andExpect(status().isAccepted())
+        .andExpect(header().string("Location", "/apply-jobs/" + jobId))
+        .andExpect(jsonPath("$.jobId").value(jobId.toString()));
   }
 
 }
@@ -0,0 +1,25 @@
+package com.example.paymentselection.repository;
+
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.testcontainers.DockerClientFactory;
+
+/**
+ * Condição dos testes com Testcontainers: sem Docker, são ignorados na máquina do desenvolvedor, mas no CI
+ * (variável de ambiente {@code CI} definida) rodam e falham ao subir o container, em vez de passar em
+ * silêncio sem validar nada.
+ */
+class DockerRequired implements ExecutionCondition {
+
+    @Override
+    public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+        if (System.getenv("CI") != null) {
+            return ConditionEvaluationResult.enabled("CI: Docker obrigatório");
+        }
+        if (DockerClientFactory.instance().isDockerAvailable()) {
+            return ConditionEvaluationResult.enabled("Docker disponível");
+        }
+        return ConditionEvaluationResult.disabled("Docker indisponível (fora do CI)");
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.paymentselection.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Migrações do Flyway sobre um banco já existente, criado pelo {@code schema.sql} anterior a elas (com dados
+ * e sem {@code flyway_schema_history}): a subida do contexto registra a baseline, aplica todas as migrações
+ * e o Hibernate valida o mapeamento contra o schema resultante ({@code ddl-auto: validate}). O banco vazio é
+ * coberto pelo {@link QueryPlanTest}.
+ *
+ * <p>Precisa de Docker (Testcontainers); sem ele, os testes só são ignorados fora do CI.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "logging.level.com.example.paymentselection=INFO"
+})
+@ExtendWith(DockerRequired.class)
+@Testcontainers
+class MigrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+        .withInitScript("db/legacy-schema.sql");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SelectionRepository selectionRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void testExistingDatabaseIsBaselinedAndMigrated() {
+        // Act
+        List<String> versions = jdbcTemplate.queryForList("""
+            SELECT coalesce(version, description) FROM flyway_schema_history
+             WHERE success ORDER BY installed_rank""", String.class);
+
+        // Assert
+        assertEquals(List.of("0", "1", "2", "3", "payment vencimento brin"), versions);
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM flyway_schema_history WHERE NOT success", Integer.class));
+    }
+
+    @Test
+    void testExistingDataIsKeptAndMappedTablesAreUsable() {
+        // Act
+        long payments = paymentRepository.count();
+        long selections = selectionRepository.count();
+        List<String> addedColumns = jdbcTemplate.queryForList("""
+            SELECT column_name FROM information_schema.columns
+             WHERE table_name = 'selection'
+               AND column_name IN ('include_bitmap', 'exclude_bitmap', 'snapshot_version', 'selected_count')
+             ORDER BY column_name""", String.class);
+
+        // Assert
+        assertEquals(10, payments);
+        assertEquals(0, selections);
+        assertEquals(List.of("exclude_bitmap", "include_bitmap", "selected_count", "snapshot_version"),
+            addedColumns);
+    }
+}
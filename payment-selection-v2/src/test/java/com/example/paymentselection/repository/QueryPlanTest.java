@@ -0,0 +1,488 @@
+package com.example.paymentselection.repository;
+
+import com.example.paymentselection.enums.ApplyJobStatus;
+import com.example.paymentselection.enums.ExportFormat;
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.repository.spec.PaymentCursor;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import com.example.paymentselection.service.CachedSelection;
+import com.example.paymentselection.service.SelectionExportService;
+import com.example.paymentselection.service.SelectionState;
+import com.example.paymentselection.util.JsonUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Planos das consultas dos repositórios no PostgreSQL, com o schema das migrações: cada comando executado
+ * pelos repositórios passa por {@code EXPLAIN} com os mesmos parâmetros e o teste falha se algum plano ler
+ * uma tabela por varredura sequencial. O {@code EXPLAIN} roda com {@code enable_seqscan = off}, de modo que
+ * uma {@code Seq Scan} no plano significa que nenhum índice atende ao formato da consulta, independente do
+ * volume de dados do teste.
+ *
+ * <p>A subida do contexto aplica as migrações num banco vazio e o Hibernate valida o mapeamento contra elas.
+ * Precisa de Docker (Testcontainers); sem ele, os testes só são ignorados fora do CI.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.jpa.show-sql=false",
+    "logging.level.com.example.paymentselection=INFO",
+    "selection.export.id-batch-size=2"
+})
+@ExtendWith(DockerRequired.class)
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Import(QueryPlanTest.RecorderConfig.class)
+class QueryPlanTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final LocalDate VENCIMENTO_ATE = LocalDate.of(2024, 6, 30);
+
+    private static final Pageable PAGE = PageRequest.of(0, 50, Sort.by("id"));
+
+    @Autowired
+    private StatementRecorder recorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private SelectionRepository selectionRepository;
+
+    @Autowired
+    private SelectionDeltaRepository selectionDeltaRepository;
+
+    @Autowired
+    private ApplyJobRepository applyJobRepository;
+
+    @Autowired
+    private ApplyJobPartitionRepository applyJobPartitionRepository;
+
+    @Autowired
+    private SelectionExportService selectionExportService;
+
+    private UUID selectionId;
+
+    private UUID userId;
+
+    private UUID jobId;
+
+    private Long partitionId;
+
+    /**
+     * Histórico pago com os pagamentos em aberto mais recentes, seleções em sua maioria expiradas e jobs
+     * concluídos, com estatísticas atualizadas.
+     */
+    @BeforeAll
+    void loadData() {
+        jdbcTemplate.update("""
+            INSERT INTO payment (status, vencimento, valor, descricao)
+            SELECT CASE WHEN g > 95000 THEN 'A_PAGAR' WHEN g % 50 = 0 THEN 'CANCELLED' ELSE 'PAID' END,
+                   CASE WHEN g % 1000 = 0 THEN NULL ELSE DATE '2020-01-01' + g / 40 END,
+                   (g % 1000) + 0.99, 'Pagamento ' || g
+              FROM generate_series(1, 100000) g""");
+        jdbcTemplate.update("""
+            INSERT INTO selection (id, user_id, mode, filter_json, version, snapshot_version, created_at, expires_at)
+            SELECT gen_random_uuid(), md5((g % 500)::text)::uuid, CASE WHEN g % 2 = 0 THEN 'ALL' ELSE 'NONE' END,
+                   '{"status": "A_PAGAR"}', g % 7, 0, now() - g * interval '1 minute',
+                   now() - g * interval '1 minute' + interval '30 minutes'
+              FROM generate_series(1, 20000) g""");
+        jdbcTemplate.update("""
+            INSERT INTO selection_delta (selection_id, version, op, ids)
+            SELECT s.id, v, 'SELECT', '\\x00'::bytea
+              FROM selection s CROSS JOIN generate_series(1, 5) v""");
+        jdbcTemplate.update("""
+            INSERT INTO apply_job (id, selection_id, user_id, action, mode, ids, max_id, partitions, status,
+                                   owner, heartbeat_at, created_at)
+            SELECT gen_random_uuid(), s.id, s.user_id, 'PAY', s.mode, '\\x00'::bytea, 100000, 4,
+                   CASE WHEN s.version = 0 THEN 'FAILED' ELSE 'COMPLETED' END, 'node-1', s.created_at, s.created_at
+              FROM selection s
+             LIMIT 10000""");
+        jdbcTemplate.update("""
+            INSERT INTO apply_job_partition (job_id, partition_no, from_id, to_id, last_id, status, chunk_size)
+            SELECT j.id, n, n * 25000, (n + 1) * 25000, (n + 1) * 25000, 'COMPLETED', 1000
+              FROM apply_job j CROSS JOIN generate_series(0, 3) n""");
+        jdbcTemplate.execute("VACUUM ANALYZE");
+
+        selectionId = jdbcTemplate.queryForObject("SELECT id FROM selection ORDER BY created_at DESC LIMIT 1", UUID.class);
+        userId = jdbcTemplate.queryForObject("SELECT user_id FROM selection WHERE id = ?", UUID.class, selectionId);
+        jobId = jdbcTemplate.queryForObject("SELECT id FROM apply_job ORDER BY created_at DESC LIMIT 1", UUID.class);
+        partitionId = jdbcTemplate.queryForObject("SELECT min(id) FROM apply_job_partition WHERE job_id = ?",
+            Long.class, jobId);
+    }
+
+    @Test
+    void testPaymentSearchesUseIndexes() {
+        assertNoSeqScan(() -> {
+            paymentRepository.findBy(PAGE);
+            paymentRepository.findByStatus("PAID", PAGE);
+            paymentRepository.findByVencimentoLessThanEqual(VENCIMENTO_ATE, PAGE);
+            paymentRepository.findByStatusAndVencimentoLessThanEqual("A_PAGAR", VENCIMENTO_ATE, PAGE);
+            paymentRepository.findSliceBy(PAGE);
+            paymentRepository.findSliceByStatus("CANCELLED", PAGE);
+            paymentRepository.findSliceByVencimentoLessThanEqual(VENCIMENTO_ATE, PAGE);
+            paymentRepository.findSliceByStatusAndVencimentoLessThanEqual("A_PAGAR", VENCIMENTO_ATE, PAGE);
+            paymentRepository.findIdsPage("A_PAGAR", VENCIMENTO_ATE, PAGE);
+            paymentRepository.findIdsPage("CANCELLED", null, PAGE);
+            paymentRepository.count(PaymentFilter.of("A_PAGAR", VENCIMENTO_ATE).toSpecification());
+            paymentRepository.count(PaymentFilter.of(null, VENCIMENTO_ATE).toSpecification());
+        });
+    }
+
+    @Test
+    void testPaymentCursorPagesUseIndexes() {
+        PaymentCursor dated = new PaymentCursor(LocalDate.of(2026, 6, 1), 96000);
+        PaymentCursor undated = new PaymentCursor(null, 50000);
+
+        assertNoSeqScan(() -> {
+            for (PaymentFilter filter : List.of(PaymentFilter.of(null, null), PaymentFilter.of("A_PAGAR", null),
+                    PaymentFilter.of("PAID", VENCIMENTO_ATE))) {
+                paymentRepository.findAfter(filter, null, 51);
+                paymentRepository.findAfter(filter, dated, 51);
+                paymentRepository.findAfter(filter, undated, 51);
+                paymentRepository.findBefore(filter, dated, 51);
+                paymentRepository.findBefore(filter, undated, 51);
+            }
+        });
+    }
+
+    @Test
+    void testPaymentBulkUpdatesUseIndexes() {
+        assertNoSeqScan(() -> transactionTemplate.executeWithoutResult(status -> {
+            paymentRepository.findIdsMatchingFilter(new long[] {1L, 2L, 96001L},
+                PaymentFilter.of("A_PAGAR", VENCIMENTO_ATE));
+            paymentRepository.findChunkEnd(95000, 100000, "A_PAGAR", VENCIMENTO_ATE.plusYears(3), 1000);
+            paymentRepository.findChunkEnd(0, 100000, null, null, 1000);
+            paymentRepository.findMaxId();
+            paymentRepository.bulkUpdateByIds(List.of(96001L, 96002L));
+            paymentRepository.bulkCancelByIds(List.of(96003L));
+            PaymentFilter filter = PaymentFilter.of("A_PAGAR", null);
+            paymentRepository.bulkUpdateByFilterInRange(filter, 95000, 96000, List.of(95500L));
+            paymentRepository.bulkCancelByFilterInRange(filter, 96000, 97000, List.of());
+            status.setRollbackOnly();
+        }));
+    }
+
+    @Test
+    void testSelectionQueriesUseIndexes() {
+        Instant now = Instant.now();
+
+        assertNoSeqScan(() -> transactionTemplate.executeWithoutResult(status -> {
+            selectionRepository.findById(selectionId);
+            selectionRepository.findByIdAndUserId(selectionId, userId);
+            selectionRepository.findSnapshotById(selectionId);
+            selectionRepository.incrementVersion(selectionId, 0);
+            selectionRepository.incrementVersion(selectionId, 1, 10L);
+            selectionRepository.resetSnapshot(selectionId, 2, Mode.ALL, new byte[0], 0L);
+            selectionRepository.writeSnapshot(selectionId, new byte[0], new byte[0], 3);
+            selectionRepository.countLiveByMode(now);
+            selectionRepository.deleteExpired(now, 500);
+            selectionDeltaRepository.findBySelectionIdOrderByVersionAscIdAsc(selectionId);
+            selectionDeltaRepository.findSelectionIdsToCompact(32, PageRequest.of(0, 100));
+            selectionDeltaRepository.deleteUpToVersion(selectionId, 3);
+            selectionDeltaRepository.deleteBySelectionId(selectionId);
+            selectionRepository.deleteSelectionById(selectionId);
+            status.setRollbackOnly();
+        }));
+    }
+
+    @Test
+    void testApplyJobQueriesUseIndexes() {
+        Instant now = Instant.now();
+        Instant staleBefore = now.minus(30, ChronoUnit.SECONDS);
+
+        assertNoSeqScan(() -> transactionTemplate.executeWithoutResult(status -> {
+            applyJobRepository.findByIdAndUserId(jobId, userId);
+            applyJobRepository.findProgress(List.of(jobId, UUID.randomUUID()));
+            applyJobRepository.claim(jobId, "node-2", now, staleBefore);
+            applyJobRepository.progress(jobId, "node-2", 1000, now);
+            applyJobRepository.finish(jobId, "node-2", ApplyJobStatus.COMPLETED, null, now);
+            applyJobRepository.findResumable(staleBefore, PageRequest.of(0, 10));
+            applyJobPartitionRepository.findByJobIdOrderByPartitionNo(jobId);
+            applyJobPartitionRepository.checkpoint(partitionId, 26000L, 1000, 1000);
+            applyJobPartitionRepository.updateStatus(partitionId, ApplyJobStatus.COMPLETED);
+            status.setRollbackOnly();
+        }));
+    }
+
+    @Test
+    void testOpenPaymentsCursorUsesPartialIndexInGenericPlan() {
+        // Arrange
+        List<Execution> executions = recorder.record(() ->
+            paymentRepository.findAfter(PaymentFilter.of("A_PAGAR", VENCIMENTO_ATE.plusYears(3)),
+                new PaymentCursor(LocalDate.of(2026, 6, 1), 96000), 51));
+
+        // Act: sem o índice geral por status, só o parcial atende ao filtro e à ordem
+        Set<String> indexes = new HashSet<>();
+        for (Execution execution : executions) {
+            collectIndexes(explainGeneric(execution, "DROP INDEX idx_payment_status_vencimento_id"), indexes);
+        }
+
+        // Assert
+        assertEquals(Set.of("idx_payment_a_pagar_vencimento_id"), indexes);
+    }
+
+    @Test
+    void testStatusPageUsesStatusIdIndex() {
+        // Arrange
+        List<Execution> executions = recorder.record(() -> paymentRepository.findSliceByStatus("CANCELLED", PAGE));
+
+        // Act
+        Set<String> indexes = new HashSet<>();
+        for (Execution execution : executions) {
+            collectIndexes(explain(execution), indexes);
+        }
+
+        // Assert
+        assertEquals(Set.of("idx_payment_status_id"), indexes);
+    }
+
+    @Test
+    void testSelectionExportBatchesShareOneStatement() {
+        // Arrange
+        Roaring64NavigableMap included = Roaring64NavigableMap.bitmapOf(96001, 96002, 96003, 96004, 96005);
+        CachedSelection selection = new CachedSelection(selectionId, userId, PaymentFilter.of("A_PAGAR", null),
+            null, 0, new SelectionState(Mode.NONE, included, new Roaring64NavigableMap()), 5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        List<Execution> executions = recorder.record(() -> export(selection, out));
+
+        // Assert: três lotes, um único texto de comando, todos pela chave primária
+        assertEquals(5, out.toString().lines().count());
+        assertEquals(3, executions.size());
+        assertEquals(1, executions.stream().map(Execution::sql).distinct().count());
+        assertNoSeqScan(() -> export(selection, new ByteArrayOutputStream()));
+    }
+
+    private void export(CachedSelection selection, ByteArrayOutputStream out) {
+        try {
+            selectionExportService.export(selection, ExportFormat.NDJSON, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void assertNoSeqScan(Runnable queries) {
+        List<Execution> executions = recorder.record(queries);
+        assertFalse(executions.isEmpty(), "Nenhum comando registrado");
+        for (Execution execution : executions) {
+            JsonNode plan = explain(execution);
+            assertFalse(plan.toString().contains("\"Seq Scan\""),
+                () -> "Varredura sequencial no plano de:\n" + execution.sql() + "\n" + plan.toPrettyString());
+        }
+    }
+
+    private static void collectIndexes(JsonNode plan, Set<String> indexes) {
+        if (plan.has("Index Name")) {
+            indexes.add(plan.get("Index Name").asText());
+        }
+        plan.path("Plans").forEach(child -> collectIndexes(child, indexes));
+    }
+
+    /**
+     * Plano do comando com os parâmetros da execução registrada.
+     */
+    private JsonNode explain(Execution execution) {
+        return explain("EXPLAIN (FORMAT JSON) " + execution.sql(), execution.binds(), List.of(), List.of());
+    }
+
+    /**
+     * Plano genérico, que não depende dos valores dos parâmetros (executado com nulos): o que um comando
+     * preparado passa a usar depois de algumas execuções.
+     */
+    private JsonNode explainGeneric(Execution execution, String... setup) {
+        StringBuilder sql = new StringBuilder();
+        List<String> arguments = new ArrayList<>();
+        for (char c : execution.sql().toCharArray()) {
+            if (c == '?') {
+                arguments.add("NULL");
+                sql.append('$').append(arguments.size());
+            } else {
+                sql.append(c);
+            }
+        }
+
+        List<String> commands = new ArrayList<>(List.of(setup));
+        commands.add("SET LOCAL plan_cache_mode = force_generic_plan");
+        commands.add("PREPARE plan_check AS " + sql);
+        return explain("EXPLAIN (FORMAT JSON) EXECUTE plan_check(" + String.join(", ", arguments) + ")",
+            List.of(), commands, List.of("DEALLOCATE plan_check"));
+    }
+
+    /**
+     * Executa o {@code EXPLAIN} depois de {@code setup} (inclusive DDL), numa transação desfeita no fim.
+     */
+    private JsonNode explain(String sql, List<Bind> binds, List<String> setup, List<String> cleanup) {
+        return jdbcTemplate.execute((ConnectionCallback<JsonNode>) connection -> {
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET LOCAL enable_seqscan = off");
+                    for (String command : setup) {
+                        statement.execute(command);
+                    }
+                }
+                try (PreparedStatement explain = connection.prepareStatement(sql)) {
+                    for (Bind bind : binds) {
+                        bind.apply(explain);
+                    }
+                    try (ResultSet rs = explain.executeQuery()) {
+                        rs.next();
+                        return JsonUtils.readTree(rs.getString(1)).path(0).path("Plan");
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    for (String command : cleanup) {
+                        statement.execute(command);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Comando preparado executado por um repositório, com as chamadas {@code setXxx} dos parâmetros.
+     */
+    record Execution(String sql, List<Bind> binds) {}
+
+    record Bind(Method method, Object[] args) {
+
+        void apply(PreparedStatement statement) throws SQLException {
+            try {
+                method.invoke(statement, args);
+            } catch (ReflectiveOperationException e) {
+                throw new SQLException("Parâmetro não reaplicado: " + method.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Envolve o DataSource da aplicação e registra os comandos preparados executados na thread do teste.
+     */
+    static class StatementRecorder implements BeanPostProcessor {
+
+        private final ThreadLocal<List<Execution>> executions = new ThreadLocal<>();
+
+        List<Execution> record(Runnable queries) {
+            List<Execution> recorded = new ArrayList<>();
+            executions.set(recorded);
+            try {
+                queries.run();
+            } finally {
+                executions.remove();
+            }
+            return recorded;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)) {
+                return bean;
+            }
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return connection(super.getConnection());
+                }
+            };
+        }
+
+        private Connection connection(Connection target) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    return method.getName().equals("prepareStatement") && result instanceof PreparedStatement statement
+                        ? statement(statement, (String) args[0]) : result;
+                });
+        }
+
+        private PreparedStatement statement(PreparedStatement target, String sql) {
+            List<Bind> binds = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    List<Execution> recorded = executions.get();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        binds.add(new Bind(method, args.clone()));
+                    } else if (name.equals("clearParameters")) {
+                        binds.clear();
+                    } else if (name.startsWith("execute") && recorded != null) {
+                        recorded.add(new Execution(sql, List.copyOf(binds)));
+                    }
+                    return invoke(target, method, args);
+                });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class RecorderConfig {
+
+        @Bean
+        static StatementRecorder statementRecorder() {
+            return new StatementRecorder();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.dto.ApplyJobResponse;
+import com.example.paymentselection.enums.Action;
+import com.example.paymentselection.enums.ApplyJobStatus;
+import com.example.paymentselection.repository.ApplyJobRepository;
+import com.example.paymentselection.repository.projection.ApplyJobProgress;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ApplyJobProgressPublisherTest {
+
+    @Mock
+    private ApplyJobRepository applyJobRepository;
+
+    @Mock
+    private SelectionMetrics selectionMetrics;
+
+    @InjectMocks
+    private ApplyJobProgressPublisher publisher;
+
+    private final UUID jobId = UUID.randomUUID();
+
+    private final UUID userId = UUID.randomUUID();
+
+    private final Instant startedAt = Instant.now().minusSeconds(10);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(publisher, "objectMapper", new ObjectMapper().findAndRegisterModules());
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdown();
+    }
+
+    @Test
+    void testPublishQueriesOncePerJobAndClosesStreamsWhenJobFinishes() {
+        // Arrange
+        when(applyJobRepository.findProgress(List.of(jobId)))
+            .thenReturn(List.of(progress(ApplyJobStatus.RUNNING, 2000, 2)))
+            .thenReturn(List.of(progress(ApplyJobStatus.RUNNING, 4000, 4)))
+            .thenReturn(List.of(progress(ApplyJobStatus.COMPLETED, 5000, 5)));
+
+        // Act
+        publisher.subscribe(jobId, userId);
+        publisher.subscribe(jobId, userId);
+        publisher.subscribe(jobId, userId);
+        publisher.publish();
+        int afterProgress = publisher.subscribers();
+        publisher.publish();
+        publisher.publish();
+
+        // Assert
+        assertEquals(3, afterProgress);
+        assertEquals(0, publisher.subscribers());
+        // Uma consulta no primeiro assinante (os demais usam o andamento já lido) e uma por publicação
+        verify(applyJobRepository, times(3)).findProgress(List.of(jobId));
+    }
+
+    @Test
+    void testSubscribeToFinishedOrOtherUsersJobDoesNotRegister() {
+        // Arrange
+        when(applyJobRepository.findProgress(List.of(jobId)))
+            .thenReturn(List.of(progress(ApplyJobStatus.COMPLETED, 5000, 5)));
+
+        // Act
+        Optional<SseEmitter> finished = publisher.subscribe(jobId, userId);
+        Optional<SseEmitter> otherUser = publisher.subscribe(jobId, UUID.randomUUID());
+        publisher.publish();
+
+        // Assert
+        assertTrue(finished.isPresent());
+        assertTrue(otherUser.isEmpty());
+        assertEquals(0, publisher.subscribers());
+        verify(applyJobRepository, times(2)).findProgress(any());
+    }
+
+    @Test
+    void testPublishClosesStreamsOfDeletedJobs() {
+        // Arrange
+        when(applyJobRepository.findProgress(List.of(jobId)))
+            .thenReturn(List.of(progress(ApplyJobStatus.RUNNING, 2000, 2)))
+            .thenReturn(List.of());
+
+        // Act
+        publisher.subscribe(jobId, userId);
+        publisher.subscribe(jobId, userId);
+        int subscribed = publisher.subscribers();
+        publisher.publish();
+
+        // Assert
+        assertEquals(2, subscribed);
+        assertEquals(0, publisher.subscribers());
+    }
+
+    @Test
+    void testEtaUsesEstimatedRowsAndThroughput() {
+        // Act
+        ApplyJobResponse response = ApplyJobResponse.of(progress(ApplyJobStatus.RUNNING, 2000, 2),
+            startedAt.plusSeconds(10));
+
+        // Assert
+        assertEquals(200.0, response.rowsPerSecond(), 0.001);
+        assertEquals(15.0, response.etaSeconds(), 0.001);
+    }
+
+    private ApplyJobProgress progress(ApplyJobStatus status, long rows, int chunks) {
+        Instant finishedAt = status.finished() ? startedAt.plusSeconds(20) : null;
+        return new ApplyJobProgress(jobId, UUID.randomUUID(), userId, Action.PAY, status, rows, 5000L, chunks, 1,
+            startedAt, startedAt, finishedAt, null);
+    }
+}
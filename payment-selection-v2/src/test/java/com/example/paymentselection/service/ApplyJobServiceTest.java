@@ -0,0 +1,279 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.config.ReadYourWrites;
+import com.example.paymentselection.entity.ApplyJob;
+import com.example.paymentselection.entity.ApplyJobPartition;
+import com.example.paymentselection.enums.Action;
+import com.example.paymentselection.enums.ApplyJobStatus;
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.repository.ApplyJobPartitionRepository;
+import com.example.paymentselection.repository.ApplyJobRepository;
+import com.example.paymentselection.repository.PaymentRepository;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import com.example.paymentselection.util.BitmapUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ApplyJobServiceTest {
+
+    @Mock
+    private ApplyJobRepository applyJobRepository;
+
+    @Mock
+    private ApplyJobPartitionRepository applyJobPartitionRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private SelectionMetrics selectionMetrics;
+
+    @Mock
+    private ReadYourWrites readYourWrites;
+
+    @InjectMocks
+    private ApplyJobService applyJobService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(applyJobService, "transactionTemplate", new TransactionTemplate(transactionManager));
+        // Lotes fixos de 2 IDs, independentemente da duração
+        ReflectionTestUtils.setField(applyJobService, "minChunkSize", 2);
+        ReflectionTestUtils.setField(applyJobService, "maxChunkSize", 2);
+        applyJobService.init();
+    }
+
+    @Test
+    void testRunResumesFromCheckpointInChunks() {
+        // Arrange
+        ApplyJob job = job(Mode.NONE);
+        ApplyJobPartition partition = partition(job, 0L, 5L, 2L);
+        stubClaimedJob(job, partition);
+        when(paymentRepository.bulkUpdateByIds(any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        // Act
+        applyJobService.run(job.getId());
+
+        // Assert
+        verify(paymentRepository, never()).bulkUpdateByIds(List.of(1L, 2L));
+        verify(paymentRepository).bulkUpdateByIds(List.of(3L, 4L));
+        verify(paymentRepository).bulkUpdateByIds(List.of(5L));
+        verify(applyJobPartitionRepository).checkpoint(partition.getId(), 4L, 2, 2);
+        verify(applyJobPartitionRepository).checkpoint(partition.getId(), 5L, 1, 2);
+        verify(applyJobRepository).progress(eq(job.getId()), anyString(), eq(2), any());
+        verify(applyJobPartitionRepository).updateStatus(partition.getId(), ApplyJobStatus.COMPLETED);
+        verify(applyJobRepository).finish(eq(job.getId()), anyString(), eq(ApplyJobStatus.COMPLETED), isNull(), any());
+    }
+
+    @Test
+    void testRunAppliesEachIdOnceAcrossParallelPartitions() {
+        // Arrange
+        List<Long> ids = LongStream.rangeClosed(1, 4000).map(i -> i * 3).boxed().toList();
+        ApplyJob job = job(Mode.NONE);
+        job.setIds(BitmapUtils.toBytes(BitmapUtils.of(ids)));
+        List<ApplyJobPartition> partitions = new ArrayList<>();
+        List<long[]> ranges = ApplyJobService.partition(Mode.NONE, BitmapUtils.of(ids), 12000L, 4);
+        for (int i = 0; i < ranges.size(); i++) {
+            ApplyJobPartition partition = new ApplyJobPartition(job.getId(), i, ranges.get(i)[0], ranges.get(i)[1], 2);
+            partition.setId((long) i);
+            partitions.add(partition);
+        }
+        when(applyJobRepository.claim(eq(job.getId()), anyString(), any(), any())).thenReturn(1);
+        when(applyJobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+        when(applyJobPartitionRepository.findByJobIdOrderByPartitionNo(job.getId())).thenReturn(partitions);
+        when(applyJobRepository.progress(eq(job.getId()), anyString(), anyInt(), any())).thenReturn(1);
+        Map<Long, Integer> applied = new ConcurrentHashMap<>();
+        when(paymentRepository.bulkUpdateByIds(any())).thenAnswer(invocation -> {
+            List<Long> batch = invocation.getArgument(0);
+            batch.forEach(id -> applied.merge(id, 1, Integer::sum));
+            return batch.size();
+        });
+
+        // Act
+        applyJobService.run(job.getId());
+
+        // Assert
+        assertEquals(4, ranges.size());
+        assertEquals(new HashSet<>(ids), applied.keySet());
+        assertTrue(applied.values().stream().allMatch(count -> count == 1));
+        verify(applyJobRepository).finish(eq(job.getId()), anyString(), eq(ApplyJobStatus.COMPLETED), isNull(), any());
+    }
+
+    @Test
+    void testRunAllModeSendsOnlyExclusionsOfEachRange() {
+        // Arrange
+        ApplyJob job = job(Mode.ALL);
+        job.setIds(BitmapUtils.toBytes(BitmapUtils.of(List.of(2L, 7L))));
+        job.setMaxId(10L);
+        PaymentFilter filter = new PaymentFilter("A_PAGAR", null);
+        stubClaimedJob(job, partition(job, 0L, 10L, 0L));
+        when(paymentRepository.findChunkEnd(eq(0L), eq(10L), eq("A_PAGAR"), isNull(), anyInt())).thenReturn(4L);
+        when(paymentRepository.findChunkEnd(eq(4L), eq(10L), eq("A_PAGAR"), isNull(), anyInt())).thenReturn(null);
+
+        // Act
+        applyJobService.run(job.getId());
+
+        // Assert
+        verify(paymentRepository).bulkUpdateByFilterInRange(filter, 0L, 4L, List.of(2L));
+        verify(paymentRepository).bulkUpdateByFilterInRange(filter, 4L, 10L, List.of(7L));
+        verify(applyJobRepository).finish(eq(job.getId()), anyString(), eq(ApplyJobStatus.COMPLETED), isNull(), any());
+    }
+
+    @Test
+    void testCreateDoesNotModifyCachedSelectionState() {
+        // Arrange
+        Roaring64NavigableMap included = new Roaring64NavigableMap();
+        for (long id = 1; id <= 10_000; id++) {
+            included.addLong(id);
+        }
+        long sizeBefore = included.serializedSizeInBytes();
+        CachedSelection selection = new CachedSelection(UUID.randomUUID(), UUID.randomUUID(),
+            new PaymentFilter("A_PAGAR", null), null, 1, new SelectionState(Mode.NONE, included,
+            new Roaring64NavigableMap()), 10_000L);
+        when(paymentRepository.findMaxId()).thenReturn(20_000L);
+
+        // Act
+        ApplyJob job = applyJobService.create(selection, Action.PAY);
+
+        // Assert
+        assertEquals(sizeBefore, included.serializedSizeInBytes());
+        assertTrue(job.getIds().length < sizeBefore);
+        assertEquals(10_000L, BitmapUtils.fromBytes(job.getIds()).getLongCardinality());
+    }
+
+    @Test
+    void testRunStopsWhenAnotherNodeOwnsTheJob() {
+        // Arrange
+        ApplyJob job = job(Mode.NONE);
+        when(applyJobRepository.claim(eq(job.getId()), anyString(), any(), any())).thenReturn(0);
+
+        // Act
+        applyJobService.run(job.getId());
+
+        // Assert
+        verify(paymentRepository, never()).bulkUpdateByIds(any());
+        verify(applyJobRepository, never()).finish(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testRunMarksJobFailedWhenPartitionSetupFails() {
+        // Arrange
+        ApplyJob job = job(Mode.NONE);
+        when(applyJobRepository.claim(eq(job.getId()), anyString(), any(), any())).thenReturn(1);
+        when(applyJobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+        when(applyJobPartitionRepository.findByJobIdOrderByPartitionNo(job.getId()))
+            .thenThrow(new QueryTimeoutException("timeout"));
+
+        // Act
+        applyJobService.run(job.getId());
+
+        // Assert: falha fora das partições também termina o job, em vez de deixá-lo RUNNING sem registro
+        verify(applyJobRepository).finish(eq(job.getId()), anyString(), eq(ApplyJobStatus.FAILED), eq("timeout"), any());
+        verify(paymentRepository, never()).bulkUpdateByIds(any());
+    }
+
+    @Test
+    void testHeartbeatRenewedDuringSlowChunkStopsJobWhenLeaseIsLost() {
+        // Arrange
+        ReflectionTestUtils.setField(applyJobService, "heartbeatInterval", Duration.ofMillis(20));
+        ApplyJob job = job(Mode.NONE);
+        stubClaimedJob(job, partition(job, 0L, 5L, 0L));
+        when(applyJobRepository.heartbeat(eq(job.getId()), anyString(), any())).thenReturn(0);
+        when(paymentRepository.bulkUpdateByIds(any())).thenAnswer(invocation -> {
+            // Lote mais lento que o intervalo do heartbeat
+            Thread.sleep(200);
+            return ((List<?>) invocation.getArgument(0)).size();
+        });
+
+        // Act
+        applyJobService.run(job.getId());
+
+        // Assert
+        verify(applyJobRepository, atLeastOnce()).heartbeat(eq(job.getId()), anyString(), any());
+        verify(paymentRepository, times(1)).bulkUpdateByIds(any());
+        verify(applyJobPartitionRepository, never()).updateStatus(any(), any());
+        verify(applyJobRepository, never()).finish(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testNextChunkSizeTargetsDurationWithinBounds() {
+        // Arrange
+        ReflectionTestUtils.setField(applyJobService, "minChunkSize", 500);
+        ReflectionTestUtils.setField(applyJobService, "maxChunkSize", 50000);
+
+        // Act & Assert
+        assertEquals(10000, applyJobService.nextChunkSize(5000, Duration.ofMillis(100)));
+        assertEquals(2500, applyJobService.nextChunkSize(5000, Duration.ofSeconds(5)));
+        assertEquals(4000, applyJobService.nextChunkSize(5000, Duration.ofMillis(625)));
+        assertEquals(500, applyJobService.nextChunkSize(600, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void testPartitionSplitsIdsIntoDisjointRanges() {
+        // Act
+        List<long[]> all = ApplyJobService.partition(Mode.ALL, BitmapUtils.of(List.of()), 10L, 3);
+        List<long[]> none = ApplyJobService.partition(Mode.NONE, BitmapUtils.of(List.of(3L, 5L, 8L, 13L, 21L)), 30L, 2);
+        List<long[]> empty = ApplyJobService.partition(Mode.NONE, BitmapUtils.of(List.of()), 30L, 4);
+
+        // Assert
+        assertEquals(List.of("0-4", "4-8", "8-10"), all.stream().map(r -> r[0] + "-" + r[1]).toList());
+        assertEquals(List.of("0-5", "5-21"), none.stream().map(r -> r[0] + "-" + r[1]).toList());
+        assertEquals(List.of("0-0"), empty.stream().map(r -> r[0] + "-" + r[1]).toList());
+    }
+
+    private void stubClaimedJob(ApplyJob job, ApplyJobPartition partition) {
+        when(applyJobRepository.claim(eq(job.getId()), anyString(), any(), any())).thenReturn(1);
+        when(applyJobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+        when(applyJobPartitionRepository.findByJobIdOrderByPartitionNo(job.getId())).thenReturn(List.of(partition));
+        when(applyJobRepository.progress(eq(job.getId()), anyString(), anyInt(), any())).thenReturn(1);
+    }
+
+    private static ApplyJob job(Mode mode) {
+        ApplyJob job = new ApplyJob();
+        job.setId(UUID.randomUUID());
+        job.setAction(Action.PAY);
+        job.setMode(mode);
+        job.setFilterStatus("A_PAGAR");
+        job.setIds(BitmapUtils.toBytes(BitmapUtils.of(List.of(1L, 2L, 3L, 4L, 5L))));
+        job.setMaxId(5L);
+        return job;
+    }
+
+    private static ApplyJobPartition partition(ApplyJob job, long fromId, long toId, long lastId) {
+        ApplyJobPartition partition = new ApplyJobPartition(job.getId(), 0, fromId, toId, 2);
+        partition.setId(1L);
+        partition.setLastId(lastId);
+        return partition;
+    }
+}
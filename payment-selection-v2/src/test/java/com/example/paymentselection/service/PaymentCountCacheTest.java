@@ -0,0 +1,46 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.config.ReadYourWrites;
+import com.example.paymentselection.repository.PaymentTableVersion;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentCountCacheTest {
+
+    private PaymentTableVersion paymentTableVersion;
+    private PaymentCountCache paymentCountCache;
+
+    @BeforeEach
+    void setUp() {
+        paymentTableVersion = new PaymentTableVersion();
+        paymentCountCache = new PaymentCountCache();
+        ReflectionTestUtils.setField(paymentCountCache, "paymentTableVersion", paymentTableVersion);
+        ReflectionTestUtils.setField(paymentCountCache, "readYourWrites", new ReadYourWrites());
+    }
+
+    @Test
+    void testCountIsReusedForEquivalentFilterUntilTableChanges() {
+        // Arrange
+        AtomicInteger queries = new AtomicInteger();
+        PaymentFilter filter = PaymentFilter.of(Map.of("status", "A_PAGAR ", "vencimentoAte", "2024-12-31"));
+        PaymentFilter sameFilter = new PaymentFilter("A_PAGAR", LocalDate.of(2024, 12, 31));
+
+        // Act & Assert
+        assertEquals(10L, paymentCountCache.count(filter, f -> 10L + queries.getAndIncrement()));
+        assertEquals(10L, paymentCountCache.count(sameFilter, f -> 10L + queries.getAndIncrement()));
+        assertEquals(1, queries.get());
+
+        paymentTableVersion.markWritten();
+
+        assertEquals(11L, paymentCountCache.count(sameFilter, f -> 10L + queries.getAndIncrement()));
+        assertEquals(2, queries.get());
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.dto.PaymentExportRow;
+import com.example.paymentselection.enums.ExportFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentExportWriterTest {
+
+    private static final PaymentExportRow ROW = new PaymentExportRow(7L, "A_PAGAR", LocalDate.of(2024, 1, 15),
+        new BigDecimal("100.50"), "Conta \"luz\", janeiro", Instant.parse("2024-01-01T10:00:00Z"), null);
+
+    @Test
+    void testWritesCsvWithHeaderAndQuotedFields() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PaymentExportWriter writer = new PaymentExportWriter(ExportFormat.CSV, out);
+
+        // Act
+        writer.writeHeader();
+        writer.write(ROW);
+        writer.flush();
+
+        // Assert
+        assertEquals("id,status,vencimento,valor,descricao,createdAt,updatedAt\n"
+                + "7,A_PAGAR,2024-01-15,100.50,\"Conta \"\"luz\"\", janeiro\",2024-01-01T10:00:00Z,\n",
+            out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWritesOneJsonObjectPerLine() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PaymentExportWriter writer = new PaymentExportWriter(ExportFormat.NDJSON, out);
+
+        // Act
+        writer.writeHeader();
+        writer.write(ROW);
+        writer.write(ROW);
+        writer.flush();
+
+        // Assert
+        String line = "{\"id\":7,\"status\":\"A_PAGAR\",\"vencimento\":\"2024-01-15\",\"valor\":100.50,"
+            + "\"descricao\":\"Conta \\\"luz\\\", janeiro\",\"createdAt\":\"2024-01-01T10:00:00Z\",\"updatedAt\":null}\n";
+        assertEquals(line + line, out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.config.ReadYourWrites;
+import com.example.paymentselection.dto.PaymentCursorPage;
+import com.example.paymentselection.dto.PaymentSlice;
+import com.example.paymentselection.dto.PaymentSummary;
+import com.example.paymentselection.repository.PaymentRepository;
+import com.example.paymentselection.repository.PaymentTableVersion;
+import com.example.paymentselection.repository.spec.PaymentCursor;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @InjectMocks
+    private PaymentService paymentService;
+
+    @Test
+    void testSearchByCursorReturnsNextTokenWhenMoreRowsExist() {
+        // Arrange
+        PaymentFilter filter = new PaymentFilter("A_PAGAR", null);
+        when(paymentRepository.findAfter(filter, null, 3))
+            .thenReturn(List.of(payment(1L, 10), payment(2L, 11), payment(3L, 12)));
+
+        // Act
+        PaymentCursorPage page = paymentService.searchPaymentsByCursor(" A_PAGAR ", null, null, null, 2);
+
+        // Assert
+        assertEquals(List.of(1L, 2L), page.content().stream().map(PaymentSummary::id).toList());
+        assertEquals(new PaymentCursor(LocalDate.of(2024, 1, 11), 2L), PaymentCursor.decode(page.next()));
+        assertNull(page.previous());
+    }
+
+    @Test
+    void testSearchByCursorBeforeReturnsRowsInAscendingOrder() {
+        // Arrange
+        PaymentCursor before = new PaymentCursor(null, 9L);
+        PaymentFilter filter = new PaymentFilter(null, null);
+        when(paymentRepository.findBefore(filter, before, 3))
+            .thenReturn(List.of(payment(8L, null), payment(5L, 20)));
+
+        // Act
+        PaymentCursorPage page = paymentService.searchPaymentsByCursor(null, null, null, before, 2);
+
+        // Assert
+        assertEquals(List.of(5L, 8L), page.content().stream().map(PaymentSummary::id).toList());
+        assertEquals(new PaymentCursor(null, 8L), PaymentCursor.decode(page.next()));
+        assertNull(page.previous());
+    }
+
+    @Test
+    void testSearchSliceUsesEstimateInsteadOfCount() {
+        // Arrange
+        PaymentCountCache paymentCountCache = new PaymentCountCache();
+        ReflectionTestUtils.setField(paymentCountCache, "paymentTableVersion", new PaymentTableVersion());
+        ReflectionTestUtils.setField(paymentCountCache, "readYourWrites", new ReadYourWrites());
+        ReflectionTestUtils.setField(paymentService, "paymentCountCache", paymentCountCache);
+
+        PageRequest pageable = PageRequest.of(0, 2);
+        when(paymentRepository.findSliceByStatus("A_PAGAR", pageable))
+            .thenReturn(new SliceImpl<>(List.of(payment(1L, 10), payment(2L, 11)), pageable, true));
+        when(paymentRepository.estimateCount(new PaymentFilter("A_PAGAR", null)))
+            .thenReturn(OptionalLong.of(5000L));
+
+        // Act
+        PaymentSlice slice = paymentService.searchPaymentsSlice("A_PAGAR", null, pageable);
+
+        // Assert
+        assertTrue(slice.hasNext());
+        assertEquals(5000L, slice.total());
+        assertFalse(slice.totalExact());
+        verify(paymentRepository, never()).count(any(Specification.class));
+    }
+
+    private static PaymentSummary payment(Long id, Integer dia) {
+        return new PaymentSummary(id, "A_PAGAR", dia != null ? LocalDate.of(2024, 1, dia) : null,
+            BigDecimal.TEN, "Pagamento " + id, Instant.now(), Instant.now());
+    }
+}
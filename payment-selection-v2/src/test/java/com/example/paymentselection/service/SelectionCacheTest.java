@@ -0,0 +1,90 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import com.example.paymentselection.util.BitmapUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelectionCacheTest {
+
+    private MeterRegistry meterRegistry;
+    private SelectionCache selectionCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        selectionCache = new SelectionCache();
+        ReflectionTestUtils.setField(selectionCache, "meterRegistry", meterRegistry);
+        selectionCache.registerMetrics();
+    }
+
+    @Test
+    void testGetIsScopedByUserAndCountsHitsAndMisses() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        CachedSelection cached = entry(userId, Instant.now().plus(Duration.ofHours(1)), 10);
+        selectionCache.put(cached);
+
+        // Act & Assert
+        assertSame(cached, selectionCache.get(cached.id(), userId));
+        assertNull(selectionCache.get(cached.id(), UUID.randomUUID()));
+        assertEquals(1.0, meterRegistry.counter("selection.cache.requests", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("selection.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void testExpiredEntryIsEvicted() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        CachedSelection cached = entry(userId, Instant.now().minusSeconds(1), 10);
+        selectionCache.put(cached);
+
+        // Act & Assert
+        assertNull(selectionCache.get(cached.id(), userId));
+        assertEquals(0, selectionCache.size());
+        assertEquals(1.0, meterRegistry.counter("selection.cache.evictions", "cause", "expired").count());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvictedWhenOverWeight() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        Instant expiresAt = Instant.now().plus(Duration.ofHours(1));
+        CachedSelection first = entry(userId, expiresAt, 1_000);
+        CachedSelection second = entry(userId, expiresAt, 1_000);
+        CachedSelection third = entry(userId, expiresAt, 1_000);
+        ReflectionTestUtils.setField(selectionCache, "maxWeight",
+            DataSize.ofBytes(first.weight() + second.weight() + third.weight() - 1));
+
+        // Act
+        selectionCache.put(first);
+        selectionCache.put(second);
+        selectionCache.get(first.id(), userId);
+        selectionCache.put(third);
+
+        // Assert
+        assertNotNull(selectionCache.get(first.id(), userId));
+        assertNull(selectionCache.get(second.id(), userId));
+        assertNotNull(selectionCache.get(third.id(), userId));
+        assertEquals(1.0, meterRegistry.counter("selection.cache.evictions", "cause", "size").count());
+    }
+
+    private static CachedSelection entry(UUID userId, Instant expiresAt, long ids) {
+        List<Long> included = LongStream.range(0, ids).map(i -> i * 3).boxed().toList();
+        SelectionState state = new SelectionState(Mode.NONE, BitmapUtils.of(included), BitmapUtils.of(List.of()));
+        return new CachedSelection(UUID.randomUUID(), userId, new PaymentFilter(null, null), expiresAt, 0, state, ids);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.entity.SelectionDelta;
+import com.example.paymentselection.enums.DeltaOperation;
+import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.repository.SelectionDeltaRepository;
+import com.example.paymentselection.repository.SelectionRepository;
+import com.example.paymentselection.repository.projection.SelectionSnapshot;
+import com.example.paymentselection.util.BitmapUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SelectionDeltaServiceTest {
+
+    @Mock
+    private SelectionRepository selectionRepository;
+
+    @Mock
+    private SelectionDeltaRepository selectionDeltaRepository;
+
+    @InjectMocks
+    private SelectionDeltaService selectionDeltaService;
+
+    @Test
+    void testCompactFoldsDeltasIntoSnapshot() {
+        // Arrange
+        UUID selectionId = UUID.randomUUID();
+        byte[] empty = BitmapUtils.toBytes(BitmapUtils.of(List.of()));
+
+        when(selectionDeltaRepository.findBySelectionIdOrderByVersionAscIdAsc(selectionId))
+            .thenReturn(List.of(
+                delta(selectionId, 1, DeltaOperation.DESELECT, 1L, 2L, 3L),
+                delta(selectionId, 2, DeltaOperation.SELECT, 2L)));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(new SelectionSnapshot(Mode.ALL, empty, empty, "[]", "[]", 0)));
+        when(selectionRepository.writeSnapshot(eq(selectionId), any(), any(), eq(2))).thenReturn(1);
+
+        // Act
+        selectionDeltaService.compact(selectionId);
+
+        // Assert
+        ArgumentCaptor<byte[]> excluded = ArgumentCaptor.forClass(byte[].class);
+        verify(selectionRepository).writeSnapshot(eq(selectionId), any(), excluded.capture(), eq(2));
+        assertEquals(List.of(1L, 3L), BitmapUtils.toList(BitmapUtils.fromBytes(excluded.getValue())));
+        verify(selectionDeltaRepository).deleteUpToVersion(selectionId, 2);
+    }
+
+    @Test
+    void testCompactSkipsDeleteWhenNewerSnapshotWon() {
+        // Arrange
+        UUID selectionId = UUID.randomUUID();
+        byte[] empty = BitmapUtils.toBytes(BitmapUtils.of(List.of()));
+
+        when(selectionDeltaRepository.findBySelectionIdOrderByVersionAscIdAsc(selectionId))
+            .thenReturn(List.of(delta(selectionId, 1, DeltaOperation.SELECT, 7L)));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(new SelectionSnapshot(Mode.NONE, empty, empty, "[]", "[]", 0)));
+        when(selectionRepository.writeSnapshot(eq(selectionId), any(), any(), eq(1))).thenReturn(0);
+
+        // Act
+        selectionDeltaService.compact(selectionId);
+
+        // Assert
+        verify(selectionDeltaRepository, never()).deleteUpToVersion(any(), any());
+    }
+
+    private static SelectionDelta delta(UUID selectionId, int version, DeltaOperation op, Long... ids) {
+        return new SelectionDelta(selectionId, version, op, BitmapUtils.toBytes(BitmapUtils.of(List.of(ids))));
+    }
+}
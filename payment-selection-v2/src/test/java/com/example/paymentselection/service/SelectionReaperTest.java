@@ -0,0 +1,70 @@
+package com.example.paymentselection.service;
+
+import com.example.paymentselection.repository.SelectionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SelectionReaperTest {
+
+    @Mock
+    private SelectionRepository selectionRepository;
+
+    @Mock
+    private SelectionMetrics selectionMetrics;
+
+    @InjectMocks
+    private SelectionReaper selectionReaper;
+
+    @Test
+    void testReapDeletesBatchesUntilPartialBatch() {
+        // Arrange
+        ReflectionTestUtils.setField(selectionReaper, "batchSize", 100);
+        when(selectionRepository.deleteExpired(any(), eq(100))).thenReturn(100, 100, 7);
+        Instant before = Instant.now();
+
+        // Act
+        selectionReaper.reap();
+
+        // Assert
+        ArgumentCaptor<Instant> expiredBefore = ArgumentCaptor.forClass(Instant.class);
+        verify(selectionRepository, times(3)).deleteExpired(expiredBefore.capture(), eq(100));
+        assertFalse(expiredBefore.getValue().isAfter(before.minus(Duration.ofMinutes(5)).plusSeconds(1)));
+        verify(selectionMetrics, times(2)).reaped(eq(100), anyLong());
+        verify(selectionMetrics).reaped(eq(7), anyLong());
+    }
+
+    @Test
+    void testReapStopsAtMaxBatchesAndOnFailure() {
+        // Arrange
+        ReflectionTestUtils.setField(selectionReaper, "batchSize", 10);
+        ReflectionTestUtils.setField(selectionReaper, "maxBatches", 3);
+        when(selectionRepository.deleteExpired(any(), eq(10)))
+            .thenReturn(10, 10, 10)
+            .thenReturn(10)
+            .thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        // Act
+        selectionReaper.reap();
+        selectionReaper.reap();
+
+        // Assert
+        verify(selectionRepository, times(5)).deleteExpired(any(), eq(10));
+        verify(selectionMetrics, times(4)).reaped(eq(10), anyLong());
+    }
+}
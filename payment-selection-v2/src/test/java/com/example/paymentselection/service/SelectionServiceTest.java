@@ -1,20 +1,42 @@
 package com.example.paymentselection.service;
 
+import com.example.paymentselection.config.ReadYourWrites;
+import com.example.paymentselection.dto.ApplySelectionRequest;
 import com.example.paymentselection.dto.CreateSelectionRequest;
+import com.example.paymentselection.dto.SelectionOperation;
 import com.example.paymentselection.dto.SelectionResponse;
 import com.example.paymentselection.dto.UpdateSelectionRequest;
+import com.example.paymentselection.entity.ApplyJob;
 import com.example.paymentselection.entity.Selection;
+import com.example.paymentselection.entity.SelectionDelta;
+import com.example.paymentselection.enums.Action;
+import com.example.paymentselection.enums.DeltaOperation;
 import com.example.paymentselection.enums.Mode;
+import com.example.paymentselection.enums.SelectionOperationType;
 import com.example.paymentselection.repository.PaymentRepository;
+import com.example.paymentselection.repository.PaymentTableVersion;
+import com.example.paymentselection.repository.SelectionDeltaRepository;
 import com.example.paymentselection.repository.SelectionRepository;
+import com.example.paymentselection.repository.projection.SelectionSnapshot;
+import com.example.paymentselection.repository.spec.PaymentFilter;
+import com.example.paymentselection.util.BitmapUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -22,6 +44,10 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,9 +59,25 @@ class SelectionServiceTest {
     @Mock
     private PaymentRepository paymentRepository;
 
+    @Mock
+    private SelectionDeltaRepository selectionDeltaRepository;
+
+    @InjectMocks
+    private SelectionDeltaService selectionDeltaService;
+
+    @Mock
+    private ApplyJobService applyJobService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private SelectionService selectionService;
 
+    private SelectionCache selectionCache;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private UUID userId;
     private Map<String, Object> filter;
 
@@ -46,6 +88,24 @@ class SelectionServiceTest {
             "status", "A_PAGAR",
             "vencimentoAte", "2024-12-31"
         );
+        ReflectionTestUtils.setField(selectionService, "selectionDeltaService", selectionDeltaService);
+
+        meterRegistry = new SimpleMeterRegistry();
+        selectionCache = new SelectionCache();
+        ReflectionTestUtils.setField(selectionCache, "meterRegistry", meterRegistry);
+        selectionCache.registerMetrics();
+        ReflectionTestUtils.setField(selectionService, "selectionCache", selectionCache);
+
+        PaymentCountCache paymentCountCache = new PaymentCountCache();
+        ReflectionTestUtils.setField(paymentCountCache, "paymentTableVersion", new PaymentTableVersion());
+        ReflectionTestUtils.setField(paymentCountCache, "readYourWrites", new ReadYourWrites());
+        ReflectionTestUtils.setField(selectionService, "readYourWrites", new ReadYourWrites());
+        ReflectionTestUtils.setField(selectionService, "paymentCountCache", paymentCountCache);
+        ReflectionTestUtils.setField(selectionService, "transactionTemplate", new TransactionTemplate(transactionManager));
+
+        SelectionMetrics selectionMetrics = new SelectionMetrics();
+        ReflectionTestUtils.setField(selectionMetrics, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(selectionService, "selectionMetrics", selectionMetrics);
     }
 
     @Test
@@ -54,14 +114,16 @@ class SelectionServiceTest {
         UUID selectionId = UUID.randomUUID();
         Selection selection = new Selection(userId, Mode.NONE, "{\"status\":\"A_PAGAR\"}");
         selection.setId(selectionId);
-        selection.setIncludeIds("[]");
-        
+        selection.setSelectedCount(0L);
+
         UpdateSelectionRequest request = new UpdateSelectionRequest(null, List.of(1L, 2L, 3L), null);
-        
+
         when(selectionRepository.findByIdAndUserId(selectionId, userId))
             .thenReturn(Optional.of(selection));
-        when(selectionRepository.save(any(Selection.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(snapshot(Mode.NONE, List.of(), 0)));
+        stubAllIdsMatchFilter();
+        when(selectionRepository.incrementVersion(selectionId, 0, 3L)).thenReturn(1);
 
         // Act
         SelectionResponse response = selectionService.update(selectionId, userId, request);
@@ -70,10 +132,306 @@ class SelectionServiceTest {
         assertNotNull(response);
         assertEquals(selectionId, response.selectionId());
         assertEquals(3L, response.selectedCount());
-        assertTrue(selection.getIncludeIds().contains("1"));
-        assertTrue(selection.getIncludeIds().contains("2"));
-        assertTrue(selection.getIncludeIds().contains("3"));
-        verify(selectionRepository).save(selection);
+        assertEquals(3, meterRegistry.get("selection.patch.ids").tags("mode", "NONE", "set", "include")
+            .summary().totalAmount());
+
+        ArgumentCaptor<SelectionDelta> delta = ArgumentCaptor.forClass(SelectionDelta.class);
+        verify(selectionDeltaRepository).save(delta.capture());
+        assertEquals(DeltaOperation.SELECT, delta.getValue().getOp());
+        assertEquals(1, delta.getValue().getVersion());
+        assertEquals(List.of(1L, 2L, 3L), BitmapUtils.toList(BitmapUtils.fromBytes(delta.getValue().getIds())));
+        verify(selectionRepository, never()).save(any(Selection.class));
+    }
+
+    @Test
+    void testUpdateSelectionUsesCachedStateOnSecondPatch() {
+        // Arrange
+        UUID selectionId = UUID.randomUUID();
+        Selection selection = new Selection(userId, Mode.NONE, "{\"status\":\"A_PAGAR\"}");
+        selection.setId(selectionId);
+        selection.setSelectedCount(0L);
+
+        when(selectionRepository.findByIdAndUserId(selectionId, userId))
+            .thenReturn(Optional.of(selection));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(snapshot(Mode.NONE, List.of(), 0)));
+        stubAllIdsMatchFilter();
+        when(selectionRepository.incrementVersion(selectionId, 0, 2L)).thenReturn(1);
+        when(selectionRepository.incrementVersion(selectionId, 1, 2L)).thenReturn(1);
+
+        // Act
+        selectionService.update(selectionId, userId, new UpdateSelectionRequest(null, List.of(1L, 2L), null));
+        SelectionResponse response = selectionService.update(selectionId, userId,
+            new UpdateSelectionRequest(null, List.of(3L), List.of(1L)));
+
+        // Assert
+        assertEquals(2L, response.selectedCount());
+        verify(selectionRepository, times(1)).findByIdAndUserId(selectionId, userId);
+        verify(selectionRepository, times(1)).findSnapshotById(selectionId);
+    }
+
+    @Test
+    void testUpdateSelectionFoldsPendingDeltas() {
+        // Arrange
+        UUID selectionId = UUID.randomUUID();
+        Selection selection = new Selection(userId, Mode.NONE, "{\"status\":\"A_PAGAR\"}");
+        selection.setId(selectionId);
+        selection.setVersion(2);
+
+        UpdateSelectionRequest request = new UpdateSelectionRequest(null, List.of(6L, 7L), List.of(5L));
+
+        when(selectionRepository.findByIdAndUserId(selectionId, userId))
+            .thenReturn(Optional.of(selection));
+        when(selectionDeltaRepository.findBySelectionIdOrderByVersionAscIdAsc(selectionId))
+            .thenReturn(List.of(delta(selectionId, 1, DeltaOperation.SELECT, 4L), delta(selectionId, 2, DeltaOperation.SELECT, 8L)));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(snapshot(Mode.NONE, List.of(4L, 5L), 1)));
+        stubAllIdsMatchFilter();
+        when(selectionRepository.incrementVersion(selectionId, 2, 4L)).thenReturn(1);
+
+        // Act
+        SelectionResponse response = selectionService.update(selectionId, userId, request);
+
+        // Assert: snapshot {4,5} + delta v2 {8} + {6,7} - {5}; o delta v1 já está no snapshot
+        assertEquals(4L, response.selectedCount());
+    }
+
+    @Test
+    void testUpdateSelectionVersionConflict() {
+        // Arrange
+        UUID selectionId = UUID.randomUUID();
+        Selection selection = new Selection(userId, Mode.ALL, "{\"status\":\"A_PAGAR\"}");
+        selection.setId(selectionId);
+        selection.setSelectedCount(10L);
+
+        UpdateSelectionRequest request = new UpdateSelectionRequest(null, null, List.of(1L));
+
+        when(selectionRepository.findByIdAndUserId(selectionId, userId))
+            .thenReturn(Optional.of(selection));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(snapshot(Mode.ALL, List.of(), 0)));
+        stubAllIdsMatchFilter();
+        when(selectionRepository.incrementVersion(selectionId, 0, 9L)).thenReturn(0);
+        when(selectionRepository.existsById(selectionId)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> {
+            selectionService.update(selectionId, userId, request);
+        });
+        verify(selectionRepository, times(5)).incrementVersion(selectionId, 0, 9L);
+        verify(selectionDeltaRepository, never()).save(any(SelectionDelta.class));
+        assertNull(selectionCache.get(selectionId, userId));
+        assertEquals(5, meterRegistry.counter("selection.conflicts", "operation", "update", "mode", "ALL").count());
+        assertEquals(1, meterRegistry.get("selection.operations")
+            .tags("operation", "update", "mode", "ALL", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void testUpdateSelectionReappliesPatchAfterConcurrentUpdate() {
+        // Arrange
+        UUID selectionId = UUID.randomUUID();
+        Selection selection = new Selection(userId, Mode.NONE, "{\"status\":\"A_PAGAR\"}");
+        selection.setId(selectionId);
+        selection.setSelectedCount(0L);
+        Selection concurrent = new Selection(userId, Mode.NONE, "{\"status\":\"A_PAGAR\"}");
+        concurrent.setId(selectionId);
+        concurrent.setVersion(1);
+        concurrent.setSelectedCount(1L);
+
+        UpdateSelectionRequest request = new UpdateSelectionRequest(null, List.of(2L), null);
+
+        when(selectionRepository.findByIdAndUserId(selectionId, userId))
+            .thenReturn(Optional.of(selection), Optional.of(concurrent));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(snapshot(Mode.NONE, List.of(), 0)));
+        when(selectionDeltaRepository.findBySelectionIdOrderByVersionAscIdAsc(selectionId))
+            .thenReturn(List.of(), List.of(new SelectionDelta(selectionId, 1, DeltaOperation.SELECT,
+                BitmapUtils.toBytes(BitmapUtils.of(List.of(1L))))));
+        stubAllIdsMatchFilter();
+        when(selectionRepository.incrementVersion(selectionId, 0, 1L)).thenReturn(0);
+        when(selectionRepository.existsById(selectionId)).thenReturn(true);
+        when(selectionRepository.incrementVersion(selectionId, 1, 2L)).thenReturn(1);
+
+        // Act
+        SelectionResponse response = selectionService.update(selectionId, userId, request);
+
+        // Assert
+        assertEquals(2L, response.selectedCount());
+        ArgumentCaptor<SelectionDelta> delta = ArgumentCaptor.forClass(SelectionDelta.class);
+        verify(selectionDeltaRepository).save(delta.capture());
+        assertEquals(2, delta.getValue().getVersion());
+        CachedSelection cached = selectionCache.get(selectionId, userId);
+        assertEquals(2, cached.version());
+        assertEquals(List.of(1L, 2L), BitmapUtils.toList(cached.state().getIncluded()));
+        assertEquals(1, meterRegistry.counter("selection.conflicts", "operation", "update", "mode", "NONE").count());
+        assertEquals(1, meterRegistry.get("selection.operations")
+            .tags("operation", "update", "mode", "NONE", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void testUpdateSelectionDeletedWhileCachedIsNotFound() {
+        // Arrange: a seleção foi aplicada em outro nó, mas continua no cache deste
+        UUID selectionId = UUID.randomUUID();
+        Selection selection = new Selection(userId, Mode.NONE, "{\"status\":\"A_PAGAR\"}");
+        selection.setId(selectionId);
+        selectionCache.put(CachedSelection.of(selection, SelectionState.empty(Mode.NONE), 0L));
+
+        UpdateSelectionRequest request = new UpdateSelectionRequest(null, List.of(1L), null);
+
+        stubAllIdsMatchFilter();
+        when(selectionRepository.incrementVersion(selectionId, 0, 1L)).thenReturn(0);
+        when(selectionRepository.existsById(selectionId)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(SelectionNotFoundException.class, () -> {
+            selectionService.update(selectionId, userId, request);
+        });
+        verify(selectionRepository, times(1)).incrementVersion(selectionId, 0, 1L);
+        assertNull(selectionCache.get(selectionId, userId));
+        assertEquals(0, meterRegistry.counter("selection.conflicts", "operation", "update", "mode", "NONE").count());
+    }
+
+    @Test
+    void testUpdateBatchAppliesOperationsInOneVersion() {
+        // Arrange
+        UUID selectionId = UUID.randomUUID();
+        Selection selection = new Selection(userId, Mode.NONE, "{\"status\":\"A_PAGAR\"}");
+        selection.setId(selectionId);
+        selection.setSelectedCount(1L);
+
+        List<SelectionOperation> operations = List.of(
+            SelectionOperation.include(List.of(1L), null),
+            SelectionOperation.mode(Mode.ALL),
+            SelectionOperation.exclude(List.of(5L), BitmapUtils.of(List.of(6L))),
+            new SelectionOperation(SelectionOperationType.SELECT_PAGE, null, null, null, 0, 2));
+
+        when(selectionRepository.findByIdAndUserId(selectionId, userId))
+            .thenReturn(Optional.of(selection));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(snapshot(Mode.NONE, List.of(7L), 0)));
+        when(paymentRepository.count(any(Specification.class))).thenReturn(100L);
+        when(paymentRepository.findIdsPage(eq("A_PAGAR"), isNull(), eq(PageRequest.of(0, 2))))
+            .thenReturn(List.of(6L, 8L));
+        stubAllIdsMatchFilter();
+        when(selectionRepository.resetSnapshot(eq(selectionId), eq(0), eq(Mode.ALL), any(), eq(99L))).thenReturn(1);
+
+        // Act
+        SelectionResponse response = selectionService.updateBatch(selectionId, userId, operations);
+
+        // Assert
+        assertEquals(99L, response.selectedCount());
+        verify(paymentRepository, times(1)).findIdsMatchingFilter(any(), any());
+        verify(selectionRepository, never()).incrementVersion(any(), anyInt(), anyLong());
+
+        ArgumentCaptor<SelectionDelta> deltas = ArgumentCaptor.forClass(SelectionDelta.class);
+        verify(selectionDeltaRepository, times(2)).save(deltas.capture());
+        assertEquals(DeltaOperation.SELECT, deltas.getAllValues().get(0).getOp());
+        assertEquals(List.of(6L, 8L), BitmapUtils.toList(BitmapUtils.fromBytes(deltas.getAllValues().get(0).getIds())));
+        assertEquals(DeltaOperation.DESELECT, deltas.getAllValues().get(1).getOp());
+        assertEquals(List.of(5L), BitmapUtils.toList(BitmapUtils.fromBytes(deltas.getAllValues().get(1).getIds())));
+        assertEquals(1, deltas.getAllValues().get(1).getVersion());
+        assertEquals(4, meterRegistry.get("selection.batch.operations").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("selection.operations")
+            .tags("operation", "batch", "mode", "ALL", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void testUpdateSelectionReadsLegacyJsonIds() {
+        // Arrange
+        UUID selectionId = UUID.randomUUID();
+        Selection selection = new Selection(userId, Mode.NONE, "{\"status\":\"A_PAGAR\"}");
+        selection.setId(selectionId);
+
+        UpdateSelectionRequest request = new UpdateSelectionRequest(null, List.of(6L, 7L), List.of(5L));
+
+        when(selectionRepository.findByIdAndUserId(selectionId, userId))
+            .thenReturn(Optional.of(selection));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(new SelectionSnapshot(Mode.NONE, null, null, "[5,6]", "[]", 0)));
+        stubAllIdsMatchFilter();
+        when(selectionRepository.incrementVersion(selectionId, 0, 2L)).thenReturn(1);
+
+        // Act
+        SelectionResponse response = selectionService.update(selectionId, userId, request);
+
+        // Assert
+        assertEquals(2L, response.selectedCount());
+    }
+
+    @Test
+    void testUpdateSelectionIgnoresExcludedIdsOutsideFilter() {
+        // Arrange
+        UUID selectionId = UUID.randomUUID();
+        Selection selection = new Selection(userId, Mode.ALL, "{\"status\":\"A_PAGAR\"}");
+        selection.setId(selectionId);
+        selection.setSelectedCount(10L);
+
+        UpdateSelectionRequest request = new UpdateSelectionRequest(null, null, List.of(1L, 2L));
+
+        when(selectionRepository.findByIdAndUserId(selectionId, userId))
+            .thenReturn(Optional.of(selection));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(snapshot(Mode.ALL, List.of(), 0)));
+        when(paymentRepository.findIdsMatchingFilter(any(), eq(PaymentFilter.of("A_PAGAR", null))))
+            .thenReturn(List.of(1L));
+        when(selectionRepository.incrementVersion(selectionId, 0, 9L)).thenReturn(1);
+
+        // Act
+        SelectionResponse response = selectionService.update(selectionId, userId, request);
+
+        // Assert: o ID 2 não atende ao filtro e não altera a contagem
+        assertEquals(9L, response.selectedCount());
+        verify(paymentRepository, never()).count(any(Specification.class));
+    }
+
+    @Test
+    void testApplyAddsPaymentIdsFromRequestToJob() {
+        // Arrange
+        UUID selectionId = UUID.randomUUID();
+        Selection selection = new Selection(userId, Mode.NONE, "{\"status\":\"A_PAGAR\"}");
+        selection.setId(selectionId);
+        selection.setSelectedCount(1L);
+
+        ApplyJob job = new ApplyJob();
+        job.setId(UUID.randomUUID());
+
+        when(selectionRepository.findByIdAndUserId(selectionId, userId))
+            .thenReturn(Optional.of(selection));
+        when(selectionRepository.findSnapshotById(selectionId))
+            .thenReturn(Optional.of(snapshot(Mode.NONE, List.of(1L), 0)));
+        when(selectionRepository.incrementVersion(selectionId, 0)).thenReturn(1);
+        when(applyJobService.create(any(), eq(Action.PAY))).thenReturn(job);
+        // O ID 3 não atende ao filtro da seleção
+        when(paymentRepository.findIdsMatchingFilter(new long[] {1L, 2L, 3L}, PaymentFilter.of("A_PAGAR", null)))
+            .thenReturn(List.of(1L, 2L));
+
+        // Act
+        UUID jobId = selectionService.apply(selectionId, userId,
+            new ApplySelectionRequest(Action.PAY, List.of(1L, 2L, 3L)));
+
+        // Assert
+        assertEquals(job.getId(), jobId);
+        ArgumentCaptor<CachedSelection> applied = ArgumentCaptor.forClass(CachedSelection.class);
+        verify(applyJobService).create(applied.capture(), eq(Action.PAY));
+        assertEquals(List.of(1L, 2L), BitmapUtils.toList(applied.getValue().state().getIncluded()));
+        assertEquals(2L, applied.getValue().selectedCount());
+        verify(selectionRepository).deleteSelectionById(selectionId);
+        verify(applyJobService).submit(job.getId());
+    }
+
+    private void stubAllIdsMatchFilter() {
+        when(paymentRepository.findIdsMatchingFilter(any(), any()))
+            .thenAnswer(invocation -> Arrays.stream((long[]) invocation.getArgument(0)).boxed().toList());
+    }
+
+    private static SelectionSnapshot snapshot(Mode mode, List<Long> included, int snapshotVersion) {
+        byte[] empty = BitmapUtils.toBytes(BitmapUtils.of(List.of()));
+        return new SelectionSnapshot(mode, BitmapUtils.toBytes(BitmapUtils.of(included)), empty,
+            "[]", "[]", snapshotVersion);
+    }
+
+    private static SelectionDelta delta(UUID selectionId, int version, DeltaOperation op, Long... ids) {
+        return new SelectionDelta(selectionId, version, op, BitmapUtils.toBytes(BitmapUtils.of(List.of(ids))));
     }
 
     @Test
@@ -86,7 +444,7 @@ class SelectionServiceTest {
             .thenReturn(Optional.empty());
 
         // Act & Assert
-        assertThrows(RuntimeException.class, () -> {
+        assertThrows(SelectionNotFoundException.class, () -> {
             selectionService.update(selectionId, userId, request);
         });
     }
@@ -1,3 +1,5 @@
+-- schema.sql anterior às migrações do Flyway, para o teste de baseline de bancos já existentes (MigrationTest)
+
 -- Tabela de seleções
 CREATE TABLE IF NOT EXISTS selection (
     id UUID PRIMARY KEY,
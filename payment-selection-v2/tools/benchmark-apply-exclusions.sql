@@ -0,0 +1,93 @@
+-- Benchmark: apply em modo ALL com 100 mil excluídos - NOT IN x anti-join com unnest
+-- Payment Selection Backend - PostgreSQL
+--
+-- Usa uma tabela temporária com o mesmo formato e os mesmos índices da tabela payment, sem tocar
+-- nos dados reais; cada UPDATE roda numa transação desfeita no fim. Compare o plano ("hashed SubPlan"
+-- x "Merge Anti Join"), o "Execution Time" e os "Buffers". Resultados medidos no README.md.
+--
+-- psql -d payment_selection_db -f tools/benchmark-apply-exclusions.sql
+
+\timing on
+
+CREATE TEMP TABLE bench_payment (
+    id BIGINT PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    vencimento DATE,
+    valor DECIMAL(10,2),
+    descricao VARCHAR(255),
+    updated_at TIMESTAMP WITH TIME ZONE
+);
+
+-- 2 milhões de pagamentos: ~80% A_PAGAR, vencimentos espalhados em 3 anos
+INSERT INTO bench_payment (id, status, vencimento, valor, descricao)
+SELECT g,
+       CASE WHEN g % 5 = 0 THEN 'PAID' ELSE 'A_PAGAR' END,
+       DATE '2024-01-01' + (g % 1095),
+       (g % 1000) + 0.99,
+       'Pagamento ' || g
+  FROM generate_series(1, 2000000) AS g;
+
+CREATE INDEX ON bench_payment (status, vencimento, id);
+ANALYZE bench_payment;
+
+-- 100 mil excluídos espalhados pela tabela, no formato do parâmetro array enviado pela aplicação
+SELECT array_agg(g * 20)::text AS excluded FROM generate_series(1, 100000) AS g
+\gset
+
+-- 0) Custo só do filtro de exclusão, sem a escrita: NOT IN sobre o array x anti-join com unnest
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM bench_payment p
+ WHERE p.status = 'A_PAGAR'
+   AND p.id NOT IN (SELECT unnest(:'excluded'::bigint[]));
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM bench_payment p
+ WHERE p.id > 0 AND p.id <= 2000000
+   AND p.status <> 'PAID'
+   AND p.status = 'A_PAGAR'
+   AND NOT EXISTS (SELECT 1 FROM UNNEST(CAST(:'excluded' AS BIGINT ARRAY)) AS e(id) WHERE e.id = p.id);
+
+-- 1) Como seria com bulkUpdateByFilterExcluding: NOT IN com a lista (com parâmetros de bind, 100 mil
+--    IDs passam do limite de 65.535 do protocolo e o driver JDBC recusa o comando)
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS)
+UPDATE bench_payment p
+   SET status = 'PAID', updated_at = now()
+ WHERE p.status = 'A_PAGAR'
+   AND p.id NOT IN (SELECT unnest(:'excluded'::bigint[]));
+ROLLBACK;
+
+-- 2) Consulta usada pelo apply: um único parâmetro array, anti-join com os excluídos desaninhados.
+--    "p.status <> 'PAID'" evita regravar (e gerar WAL/tuplas mortas para) linhas que já estão pagas
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS)
+UPDATE bench_payment p
+   SET status = 'PAID', updated_at = now()
+ WHERE p.id > 0 AND p.id <= 2000000
+   AND p.status <> 'PAID'
+   AND p.status = 'A_PAGAR'
+   AND NOT EXISTS (SELECT 1 FROM UNNEST(CAST(:'excluded' AS BIGINT ARRAY)) AS e(id) WHERE e.id = p.id);
+ROLLBACK;
+
+-- 3) O mesmo num lote do apply (faixa de IDs), com apenas os excluídos da faixa: NOT IN x unnest
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS)
+UPDATE bench_payment p
+   SET status = 'PAID', updated_at = now()
+ WHERE p.id > 0 AND p.id <= 6250
+   AND p.status = 'A_PAGAR'
+   AND p.id NOT IN (SELECT g * 20 FROM generate_series(1, 312) AS g);
+ROLLBACK;
+
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS)
+UPDATE bench_payment p
+   SET status = 'PAID', updated_at = now()
+ WHERE p.id > 0 AND p.id <= 6250
+   AND p.status <> 'PAID'
+   AND p.status = 'A_PAGAR'
+   AND NOT EXISTS (SELECT 1 FROM UNNEST(CAST(ARRAY(SELECT g * 20 FROM generate_series(1, 312) AS g) AS BIGINT ARRAY)) AS e(id)
+                    WHERE e.id = p.id);
+ROLLBACK;
+
+DROP TABLE bench_payment;
@@ -0,0 +1,83 @@
+#!/bin/bash
+
+# Benchmark: aplicação em lote (modo ALL) sequencial x particionada por faixas de id
+# Payment Selection Backend - PostgreSQL
+#
+# Cria a tabela bench_apply_payment com 10 milhões de pagamentos (mesmos índices da tabela payment)
+# e, para cada quantidade de partições, divide (0, maxId] em faixas iguais e aplica cada faixa numa
+# sessão psql própria, em lotes de CHUNK ids com COMMIT por lote - o mesmo padrão do ApplyJobService.
+# Imprime o tempo total e o speedup em relação a uma partição.
+#
+# Uso: PSQL="psql -h localhost -U user -d payment_selection_db" tools/benchmark-apply-partitions.sh [1 2 4 8]
+
+set -e
+
+PSQL=${PSQL:-"psql -d payment_selection_db"}
+ROWS=${ROWS:-10000000}
+CHUNK=${CHUNK:-5000}
+PARTITIONS=${@:-1 2 4 8}
+
+log() {
+    echo "[$(date +'%Y-%m-%d %H:%M:%S')] $1"
+}
+
+log "Populando bench_apply_payment com $ROWS linhas..."
+$PSQL -q -v ON_ERROR_STOP=1 <<SQL
+DROP TABLE IF EXISTS bench_apply_payment;
+CREATE TABLE bench_apply_payment (
+    id BIGINT PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    vencimento DATE,
+    valor DECIMAL(10,2),
+    descricao VARCHAR(255),
+    updated_at TIMESTAMP WITH TIME ZONE
+);
+INSERT INTO bench_apply_payment (id, status, vencimento, valor, descricao)
+SELECT g, 'A_PAGAR', DATE '2024-01-01' + (g % 1095), (g % 1000) + 0.99, 'Pagamento ' || g
+  FROM generate_series(1, $ROWS) AS g;
+CREATE INDEX ON bench_apply_payment (status, vencimento, id);
+CREATE INDEX ON bench_apply_payment (vencimento, id);
+VACUUM ANALYZE bench_apply_payment;
+SQL
+
+# Aplica a faixa (from, to] em lotes, com commit por lote
+apply_range() {
+    $PSQL -q -v ON_ERROR_STOP=1 <<SQL
+DO \$\$
+DECLARE
+    last_id BIGINT := $1;
+BEGIN
+    WHILE last_id < $2 LOOP
+        UPDATE bench_apply_payment
+           SET status = 'PAID', updated_at = now()
+         WHERE id > last_id AND id <= LEAST(last_id + $CHUNK, $2)
+           AND status <> 'PAID' AND status = 'A_PAGAR';
+        last_id := LEAST(last_id + $CHUNK, $2);
+        COMMIT;
+    END LOOP;
+END
+\$\$;
+SQL
+}
+
+baseline=""
+for n in $PARTITIONS; do
+    $PSQL -q -c "UPDATE bench_apply_payment SET status = 'A_PAGAR' WHERE status = 'PAID'" \
+              -c "VACUUM ANALYZE bench_apply_payment"
+
+    step=$(( (ROWS + n - 1) / n ))
+    start=$(date +%s.%N)
+    for (( i = 0; i < n; i++ )); do
+        from=$(( i * step ))
+        to=$(( (i + 1) * step < ROWS ? (i + 1) * step : ROWS ))
+        apply_range $from $to &
+    done
+    wait
+    elapsed=$(echo "$(date +%s.%N) - $start" | bc)
+
+    baseline=${baseline:-$elapsed}
+    speedup=$(echo "scale=2; $baseline / $elapsed" | bc)
+    log "partições=$n tempo=${elapsed}s speedup=${speedup}x"
+done
+
+$PSQL -q -c "DROP TABLE bench_apply_payment"
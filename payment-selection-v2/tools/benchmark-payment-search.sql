@@ -0,0 +1,66 @@
+-- Benchmark: paginação por OFFSET (/api/payments/search) x cursor (/api/payments/search/cursor)
+-- Payment Selection Backend - PostgreSQL
+--
+-- Usa uma tabela temporária com o mesmo formato e os mesmos índices da tabela payment,
+-- sem tocar nos dados reais. Compare o "Execution Time" e os "Buffers" de cada consulta:
+-- no OFFSET o custo cresce com o número da página; no cursor ele é o mesmo da primeira página.
+--
+-- psql -d payment_selection_db -f tools/benchmark-payment-search.sql
+
+\timing on
+
+CREATE TEMP TABLE bench_payment (
+    id BIGINT PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    vencimento DATE,
+    valor DECIMAL(10,2),
+    descricao VARCHAR(255)
+);
+
+-- 2 milhões de pagamentos: ~80% A_PAGAR, vencimentos espalhados em 3 anos, 1% sem vencimento
+INSERT INTO bench_payment (id, status, vencimento, valor, descricao)
+SELECT g,
+       CASE WHEN g % 5 = 0 THEN 'PAID' ELSE 'A_PAGAR' END,
+       CASE WHEN g % 100 = 0 THEN NULL ELSE DATE '2024-01-01' + (g % 1095) END,
+       (g % 1000) + 0.99,
+       'Pagamento ' || g
+  FROM generate_series(1, 2000000) AS g;
+
+CREATE INDEX ON bench_payment (status, vencimento, id);
+CREATE INDEX ON bench_payment (vencimento, id);
+ANALYZE bench_payment;
+
+-- Página 1 (20 itens), ordenada por vencimento, id
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM bench_payment
+ WHERE status = 'A_PAGAR' AND vencimento IS NOT NULL
+ ORDER BY vencimento, id
+ LIMIT 21;
+
+-- Página 5.000 por OFFSET: lê e descarta 99.980 linhas antes da página
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM bench_payment
+ WHERE status = 'A_PAGAR' AND vencimento IS NOT NULL
+ ORDER BY vencimento, id
+ LIMIT 20 OFFSET 99980;
+
+-- Página 5.000 por cursor: parte da última linha da página 4.999 (o token "next")
+SELECT vencimento AS cursor_vencimento, id AS cursor_id
+  FROM bench_payment
+ WHERE status = 'A_PAGAR' AND vencimento IS NOT NULL
+ ORDER BY vencimento, id
+ LIMIT 1 OFFSET 99979
+\gset
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM bench_payment
+ WHERE status = 'A_PAGAR' AND vencimento IS NOT NULL
+   AND (vencimento, id) > (:'cursor_vencimento', :cursor_id)
+ ORDER BY vencimento, id
+ LIMIT 21;
+
+-- Contagem que o OFFSET ainda paga a cada página (totalElements do Page)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM bench_payment WHERE status = 'A_PAGAR';
+
+DROP TABLE bench_payment;
@@ -0,0 +1,49 @@
+#!/bin/bash
+
+# Comparação: threads de plataforma x threads virtuais no atendimento das requisições
+# Payment Selection Backend
+#
+# Sobe a aplicação duas vezes (perfil padrão e perfil virtual-threads), aplica a mesma carga com o hey
+# em /api/payments/search e /api/payments/count com CONCURRENCY clientes simultâneos - acima do
+# tamanho do pool de conexões, para exercitar a fila do semáforo - e imprime req/s, p99 e erros.
+#
+# Uso: JAR=target/payment-selection-backend-1.0.0.jar CONCURRENCY=400 DURATION=60s tools/compare-thread-modes.sh
+
+set -e
+
+JAR=${JAR:-$(ls target/*.jar | grep -v original | head -1)}
+PORT=${PORT:-8080}
+CONCURRENCY=${CONCURRENCY:-400}
+DURATION=${DURATION:-60s}
+BASE="http://localhost:$PORT/api/payments"
+
+log() {
+    echo "[$(date +'%Y-%m-%d %H:%M:%S')] $1"
+}
+
+command -v hey >/dev/null || { log "hey não encontrado (go install github.com/rakyll/hey@latest)"; exit 1; }
+
+run_mode() {
+    local mode=$1 profile=$2
+    log "Subindo a aplicação ($mode)..."
+    java -Djdk.tracePinnedThreads=short -jar "$JAR" --server.port=$PORT \
+        --spring.profiles.active=$profile --logging.level.root=WARN > /tmp/compare-$mode.log 2>&1 &
+    local pid=$!
+    until curl -sf "http://localhost:$PORT/actuator/health" >/dev/null; do sleep 1; done
+
+    for endpoint in "search?status=A_PAGAR&size=50" "count?status=A_PAGAR"; do
+        # Aquecimento (JIT, pool de conexões)
+        hey -z 10s -c 50 "$BASE/$endpoint" >/dev/null
+        hey -z $DURATION -c $CONCURRENCY "$BASE/$endpoint" > /tmp/compare-$mode.txt
+        rps=$(awk '/Requests\/sec/ {print $2}' /tmp/compare-$mode.txt)
+        p99=$(awk '/99% in/ {print $3}' /tmp/compare-$mode.txt)
+        errors=$(awk '/Status code distribution/,0' /tmp/compare-$mode.txt | grep -v '\[200\]' | grep -c '\[' || true)
+        log "$mode ${endpoint%%\?*}: req/s=$rps p99=${p99}s códigos não-200=$errors"
+    done
+
+    log "Pinning registrado ($mode): $(grep -c 'presa à portadora\|onPinned\|<== monitors' /tmp/compare-$mode.log || true)"
+    kill $pid && wait $pid 2>/dev/null || true
+}
+
+run_mode plataforma default
+run_mode virtual virtual-threads
@@ -14,41 +14,8 @@ CREATE SCHEMA IF NOT EXISTS payment_selection;
 -- Configurar search_path
 ALTER DATABASE payment_selection_db SET search_path TO payment_selection, public;
 
--- Tabela compatível com a entidade @Table(name="payment")
-CREATE TABLE IF NOT EXISTS payment_selection.payment (
-  id           BIGSERIAL PRIMARY KEY,
-  status       VARCHAR(32) NOT NULL DEFAULT 'A_PAGAR',
-  vencimento   DATE,
-  valor        NUMERIC(10,2),
-  descricao    TEXT,
-  created_at   TIMESTAMPTZ NOT NULL DEFAULT NOW(),
-  updated_at   TIMESTAMPTZ NOT NULL DEFAULT NOW()
-);
-
--- Trigger para updated_at
-CREATE OR REPLACE FUNCTION payment_selection.touch_updated_at()
-RETURNS TRIGGER LANGUAGE plpgsql AS $$
-BEGIN
-  NEW.updated_at = NOW();
-  RETURN NEW;
-END;
-$$;
-
-DROP TRIGGER IF EXISTS trg_payment_updated_at ON payment_selection.payment;
-CREATE TRIGGER trg_payment_updated_at
-BEFORE UPDATE ON payment_selection.payment
-FOR EACH ROW EXECUTE FUNCTION payment_selection.touch_updated_at();
-
--- Seeds somente se a tabela estiver vazia
-DO $$
-BEGIN
-  IF NOT EXISTS (SELECT 1 FROM payment_selection.payment) THEN
-    INSERT INTO payment_selection.payment (status, vencimento, valor, descricao) VALUES
-      ('A_PAGAR', '2024-12-01', 120.50, 'Conta de luz'),
-      ('A_PAGAR', '2025-01-15',  99.90,  'Internet'),
-      ('PAGO',    '2024-11-10',  80.00,  'Água');
-  END IF;
-END$$;
+-- As tabelas e os índices são criados pelas migrações do Flyway na subida da aplicação
+-- (src/main/resources/db/migration), neste schema
 
 -- Criar usuário de aplicação com permissões limitadas (se necessário)
 -- DO $$
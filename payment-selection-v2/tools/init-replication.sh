@@ -0,0 +1,12 @@
+#!/bin/bash
+
+# Usuário e acesso de replicação para a réplica de leitura local (db-replica no docker-compose.yml)
+# Payment Selection Backend - executado pelo entrypoint do PostgreSQL na criação do banco
+
+set -e
+
+psql -v ON_ERROR_STOP=1 --username "$POSTGRES_USER" --dbname "$POSTGRES_DB" <<-SQL
+    CREATE ROLE replicator WITH REPLICATION LOGIN PASSWORD 'replicator';
+SQL
+
+echo "host replication replicator all scram-sha-256" >> "$PGDATA/pg_hba.conf"
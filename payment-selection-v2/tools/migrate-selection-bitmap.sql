@@ -0,0 +1,38 @@
+-- Migração: conjuntos de IDs da seleção de jsonb para bitmap Roaring (bytea) e log de deltas
+-- Payment Selection Backend - PostgreSQL
+--
+-- As colunas novas começam nulas. Enquanto o bitmap estiver nulo a aplicação lê o
+-- array jsonb legado; a compactação do log de deltas (ou uma troca de modo) grava o bitmap.
+-- Seleções expiram em 4h, então após esse prazo as colunas jsonb podem ser removidas.
+
+ALTER TABLE selection ADD COLUMN IF NOT EXISTS include_bitmap BYTEA;
+ALTER TABLE selection ADD COLUMN IF NOT EXISTS exclude_bitmap BYTEA;
+ALTER TABLE selection ADD COLUMN IF NOT EXISTS snapshot_version INTEGER NOT NULL DEFAULT 0;
+
+-- Contagem de selecionados mantida incrementalmente; nula nas seleções antigas,
+-- que têm a contagem recalculada na leitura até o primeiro PATCH gravá-la.
+ALTER TABLE selection ADD COLUMN IF NOT EXISTS selected_count BIGINT;
+
+CREATE TABLE IF NOT EXISTS selection_delta (
+    id BIGSERIAL PRIMARY KEY,
+    selection_id UUID NOT NULL,
+    version INTEGER NOT NULL,
+    op VARCHAR(10) NOT NULL CHECK (op IN ('SELECT', 'DESELECT')),
+    ids BYTEA NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_selection_delta_selection_id ON selection_delta (selection_id, version);
+
+-- Seleções sem nenhum ID não precisam de conversão: o bitmap vazio é equivalente a '[]'
+-- e a leitura já trata bitmap nulo + jsonb vazio como conjunto vazio.
+
+-- Verificação: seleções que ainda dependem do formato legado
+SELECT COUNT(*) AS pendentes
+  FROM selection
+ WHERE (include_bitmap IS NULL AND include_ids <> '[]'::JSONB)
+    OR (exclude_bitmap IS NULL AND exclude_ids <> '[]'::JSONB);
+
+-- Após todas as seleções legadas expirarem (ou serem migradas):
+-- ALTER TABLE selection DROP COLUMN include_ids;
+-- ALTER TABLE selection DROP COLUMN exclude_ids;